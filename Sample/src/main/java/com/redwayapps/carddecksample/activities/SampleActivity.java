@@ -1,6 +1,9 @@
 package com.redwayapps.carddecksample.activities;
 
+import android.content.res.Resources;
 import android.os.Bundle;
+import android.support.v4.app.Fragment;
+import android.support.v4.app.FragmentManager;
 import android.support.v7.app.ActionBarActivity;
 import android.view.Menu;
 
@@ -8,36 +11,127 @@ import com.redwayapps.carddecksample.R;
 import com.redwayapps.carddecksample.fragments.MainFragment;
 import com.redwayapps.carddecksample.fragments.MenuFragment;
 import com.redwayapps.carddecksample.fragments.SubmenuFragment;
+import com.snaprix.carddecklibrary.views.CardContentFactory;
+import com.snaprix.carddecklibrary.views.Motion;
 import com.snaprix.carddecklibrary.views.Side;
 import com.snaprix.carddecklibrary.views.SlideController;
+import com.snaprix.carddecklibrary.views.SlideLayer;
 
 public class SampleActivity extends ActionBarActivity{
     private static final String FRAGMENT_MAIN = "fragment_main";
     private static final String FRAGMENT_MENU = "fragment_menu";
     private static final String FRAGMENT_SUB_MENU = "fragment_sub_menu";
 
+    private static final String KEY_FRAGMENT_STATE = "fragmentState";
+
+    private SlideController mSlideController;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
-        SlideController slideContainer = new SlideController(this, Side.RIGHT);
+        // menu and sub menu are created only when user starts to open them
+        Resources res = getResources();
+        int collapsedWidth = res.getDimensionPixelSize(com.snaprix.carddecklibrary.R.dimen.menu_width_collapsed);
+        mSlideController = new SlideController.Builder(this, Side.RIGHT)
+                .addCard(com.snaprix.carddecklibrary.R.id.card_2_layer,
+                        res.getDimensionPixelSize(com.snaprix.carddecklibrary.R.dimen.menu_width),
+                        collapsedWidth,
+                        new FragmentContentFactory(FRAGMENT_MENU) {
+                            @Override
+                            Fragment createFragment() {
+                                return new MenuFragment();
+                            }
+                        })
+                .addCard(com.snaprix.carddecklibrary.R.id.card_3_layer,
+                        res.getDimensionPixelSize(com.snaprix.carddecklibrary.R.dimen.sub_menu_width),
+                        collapsedWidth,
+                        new FragmentContentFactory(FRAGMENT_SUB_MENU) {
+                            @Override
+                            Fragment createFragment() {
+                                return new SubmenuFragment();
+                            }
+                        })
+                // keep only one hidden card with content, sub menu hosts heavy lists
+                .setMaxHiddenCards(1)
+                .setMotion(Motion.TRANSLATION)
+                // all fragments of the sample have opaque backgrounds
+                .setOverdrawClippingEnabled(true)
+                .build();
+        // put cards where they were before rotation, before the first frame is drawn
+        mSlideController.restoreState(savedInstanceState);
 
         if (savedInstanceState == null){
             getSupportFragmentManager()
                     .beginTransaction()
                     .add(R.id.content, new MainFragment(), FRAGMENT_MAIN)
-                    .add(com.snaprix.carddecklibrary.R.id.card_2_layer, new MenuFragment(), FRAGMENT_MENU)
-                    .add(com.snaprix.carddecklibrary.R.id.card_3_layer, new SubmenuFragment(), FRAGMENT_SUB_MENU)
                     .commit();
         }
     }
 
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        mSlideController.saveState(outState);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        mSlideController.onTrimMemory(level);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         // Inflate the menu; this adds items to the action bar if it is present.
         getMenuInflater().inflate(R.menu.main, menu);
         return true;
     }
-    
+
+    /**
+     * adds fragment into the card, unless it was already restored by fragment manager,
+     * removes it with its saved state, when the card is evicted
+     */
+    private abstract class FragmentContentFactory implements CardContentFactory {
+        private final String mTag;
+
+        FragmentContentFactory(String tag) {
+            mTag = tag;
+        }
+
+        abstract Fragment createFragment();
+
+        @Override
+        public void onCreateCardContent(SlideLayer layer, Bundle savedState) {
+            FragmentManager fm = getSupportFragmentManager();
+            if (fm.findFragmentByTag(mTag) == null){
+                Fragment fragment = createFragment();
+                if (savedState != null){
+                    Fragment.SavedState fragmentState = savedState.getParcelable(KEY_FRAGMENT_STATE);
+                    fragment.setInitialSavedState(fragmentState);
+                }
+
+                fm.beginTransaction()
+                        .add(layer.getId(), fragment, mTag)
+                        .commit();
+                // card is revealed right now, do not wait for the next loop
+                fm.executePendingTransactions();
+            }
+        }
+
+        @Override
+        public void onDestroyCardContent(SlideLayer layer, Bundle outState) {
+            FragmentManager fm = getSupportFragmentManager();
+            Fragment fragment = fm.findFragmentByTag(mTag);
+            if (fragment != null){
+                outState.putParcelable(KEY_FRAGMENT_STATE, fm.saveFragmentInstanceState(fragment));
+
+                // could be called from onTrimMemory, when activity state is already saved
+                fm.beginTransaction()
+                        .remove(fragment)
+                        .commitAllowingStateLoss();
+            }
+        }
+    }
 }
@@ -0,0 +1,52 @@
+package com.snaprix.carddecklibrary.benchmark;
+
+import com.snaprix.carddecklibrary.views.Side;
+
+/**
+ * runs {@link DeckSimulator} with new seeds until time is over,
+ * every failure is printed with its seed, so it could be replayed with the same seed
+ *
+ * arguments: duration in seconds (60 by default), first seed (0 by default)
+ */
+public class DeckFuzz {
+    private static final int[] CARD_COUNTS = {2, 3, 5, 10};
+    private static final int[] SIDES = {Side.LEFT, Side.RIGHT};
+    private static final int OPERATIONS_PER_RUN = 1000;
+
+    public static void main(String[] args) {
+        long duration = (args.length > 0) ? Long.parseLong(args[0]) : 60;
+        long seed = (args.length > 1) ? Long.parseLong(args[1]) : 0;
+
+        long start = System.nanoTime();
+        long end = start + duration * 1000000000L;
+
+        long runs = 0;
+        long events = 0;
+        long frames = 0;
+        int failures = 0;
+
+        while (System.nanoTime() < end){
+            for (int cardCount : CARD_COUNTS){
+                for (int side : SIDES){
+                    DeckSimulator.Result result = new DeckSimulator(cardCount, side, seed).run(OPERATIONS_PER_RUN);
+                    runs++;
+                    events += result.events;
+                    frames += result.frames;
+
+                    if (!result.isSuccess()){
+                        failures++;
+                        System.out.println(String.format("cards=%d side=%d %s", cardCount, side, result));
+                    }
+                }
+            }
+            seed++;
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.println(String.format("runs=%d events=%d frames=%d failures=%d, %.0f events/s, %.0f frames/s",
+                runs, events, frames, failures, events / seconds, frames / seconds));
+        if (failures > 0){
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.snaprix.carddecklibrary.benchmark;
+
+import com.snaprix.carddecklibrary.model.DeckGeometry;
+import com.snaprix.carddecklibrary.model.DeckMotion;
+import com.snaprix.carddecklibrary.model.DeckState;
+import com.snaprix.carddecklibrary.model.ManualFrameClock;
+import com.snaprix.carddecklibrary.model.SlideAnimation;
+
+import java.util.Random;
+
+/**
+ * runs random drags, releases and state switches through {@link DeckMotion} without any views,
+ * frames come from {@link ManualFrameClock}, so a run with the same seed is always the same
+ *
+ * invariants checked after every frame:
+ *  offset of card i stays within [0, screen width - (i + 1) * collapsed width],
+ *  so collapsed parts of the card and cards above it stay on screen,
+ *  and within the tighter limit of geometry, the last card is closed,
+ *  cached routing of {@link DeckState} matches the offsets;
+ * and every time the deck comes to rest:
+ *  the deck is settled and every motion ended in exactly one settled state,
+ *  no frame is pending, every card is either opened or closed,
+ *  the deepest opened card is fully opened, so no card is stuck in the middle
+ */
+public class DeckSimulator {
+    public static final int SCREEN_WIDTH = 1080;
+    public static final int COLLAPSED_WIDTH = 48;
+    private static final float MIN_FLING_VELOCITY = 150;
+    private static final long SLIDE_DURATION = 333;
+
+    // the deck should come to rest in 10 seconds after the last input
+    private static final int MAX_SETTLE_FRAMES = 600;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    /**
+     * outcome of one run, failure is null when all invariants held
+     */
+    public static class Result {
+        public final long seed;
+        public final long operations;
+        public final long events;
+        public final long frames;
+        public final long elapsedNanos;
+        public final String failure;
+
+        Result(long seed, long operations, long events, long frames, long elapsedNanos, String failure) {
+            this.seed = seed;
+            this.operations = operations;
+            this.events = events;
+            this.frames = frames;
+            this.elapsedNanos = elapsedNanos;
+            this.failure = failure;
+        }
+
+        public boolean isSuccess() {
+            return failure == null;
+        }
+
+        public double getEventsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : events * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("seed=%d operations=%d events=%d frames=%d %.0f events/s %s",
+                    seed, operations, events, frames, getEventsPerSecond(),
+                    (failure == null) ? "ok" : "FAILED: " + failure);
+        }
+    }
+
+    private final int mCardCount;
+    private final long mSeed;
+    private final Random mRandom;
+
+    private final DeckGeometry mGeometry;
+    private final DeckState mDeckState;
+    private final ManualFrameClock mFrameClock;
+    private final DeckMotion mDeckMotion;
+
+    private long mOperations;
+    private long mEvents;
+    private String mFailure;
+
+    // settled states reached since the deck started to move
+    private int mSettledCount;
+    private boolean mHasMoved;
+
+    /**
+     * the base card spans the screen, every lower card is narrower than the card above it
+     */
+    public DeckSimulator(int cardCount, int side, long seed) {
+        mCardCount = cardCount;
+        mSeed = seed;
+        mRandom = new Random(seed);
+
+        mGeometry = new DeckGeometry(cardCount, side);
+        mGeometry.setCollapsedWidth(COLLAPSED_WIDTH);
+        mGeometry.setWidth(0, SCREEN_WIDTH);
+        for (int i = 1; i < cardCount; i++){
+            mGeometry.setWidth(i, Math.max(COLLAPSED_WIDTH * 2, SCREEN_WIDTH * 2 / 3 - i * COLLAPSED_WIDTH));
+        }
+
+        mDeckState = new DeckState(mGeometry);
+        mFrameClock = new ManualFrameClock();
+        mDeckMotion = new DeckMotion(mGeometry, mDeckState, new SlideAnimation(SLIDE_DURATION),
+                MIN_FLING_VELOCITY, mCallback);
+        mDeckMotion.setFrameClock(mFrameClock);
+    }
+
+    public DeckGeometry getGeometry() {
+        return mGeometry;
+    }
+
+    /**
+     * runs random operations, stops at the first broken invariant
+     */
+    public Result run(long operations) {
+        long startFrames = mFrameClock.getFrameCount();
+        long start = System.nanoTime();
+
+        for (long i = 0; i < operations && mFailure == null; i++){
+            mOperations++;
+
+            int operation = mRandom.nextInt(100);
+            if (operation < 45){
+                gesture();
+            } else if (operation < 60){
+                mDeckMotion.settle(mRandom.nextInt(mCardCount), mRandom.nextBoolean(), 0);
+            } else if (operation < 90){
+                mFrameClock.advanceBy(mRandom.nextInt(500) * NANOS_PER_MILLI);
+            } else {
+                settle();
+            }
+        }
+        if (mFailure == null){
+            settle();
+        }
+
+        return new Result(mSeed, mOperations, mEvents, mFrameClock.getFrameCount() - startFrames,
+                System.nanoTime() - start, mFailure);
+    }
+
+    /**
+     * finger touches random card, moves, and is released with random velocity
+     */
+    private void gesture() {
+        int touchedIndex = (mRandom.nextInt(4) == 0) ? mRandom.nextInt(mCardCount) : 0;
+        int moveCount = 1 + mRandom.nextInt(30);
+        float distanceX = 0;
+
+        for (int i = 0; i < moveCount && mFailure == null; i++){
+            float delta = (float) (mRandom.nextGaussian() * 25);
+            distanceX += delta;
+
+            // events go to the deepest opened card below the touched one, as they do in the controller
+            mDeckMotion.drag(mDeckState.getNextIndex(touchedIndex), delta);
+            mEvents++;
+
+            // several events could come during one frame
+            mFrameClock.advanceBy((4 + mRandom.nextInt(16)) * NANOS_PER_MILLI);
+        }
+        if (mFailure != null) return;
+
+        float velocityX = (mRandom.nextBoolean()) ? (float) (mRandom.nextGaussian() * 3000) : 0;
+        mDeckMotion.release(mDeckState.getNextIndex(touchedIndex), distanceX, velocityX);
+        mEvents++;
+    }
+
+    private void settle() {
+        if (!mFrameClock.runUntilIdle(MAX_SETTLE_FRAMES)){
+            fail("deck did not settle in " + MAX_SETTLE_FRAMES + " frames");
+            return;
+        }
+        if (!mDeckMotion.isSettled()){
+            fail("no frame is scheduled, but the deck is not settled");
+            return;
+        }
+        if (mHasMoved && mSettledCount != 1){
+            fail(String.format("motion ended in %d settled states", mSettledCount));
+            return;
+        }
+        mHasMoved = false;
+        mSettledCount = 0;
+        checkSettled();
+    }
+
+    private final DeckMotion.Callback mCallback = new DeckMotion.Callback() {
+        @Override
+        public void onRevealing(int index) {
+        }
+
+        @Override
+        public void onMotionStep(int activeIndex, boolean isFirstStep) {
+            if (isFirstStep){
+                mHasMoved = true;
+                mSettledCount = 0;
+            }
+        }
+
+        @Override
+        public int onOffsetsChanged(int activeIndex) {
+            return activeIndex + 1;
+        }
+
+        @Override
+        public void onSettled() {
+            mSettledCount++;
+            checkSettled();
+        }
+
+        @Override
+        public void onFrameEnd() {
+            checkOffsets();
+            checkRouting();
+            mDeckState.clearChanges();
+        }
+    };
+
+    private void checkOffsets() {
+        for (int i = 0; i < mCardCount; i++){
+            int offset = mGeometry.getOffset(i);
+            int screenLimit = SCREEN_WIDTH - (i + 1) * COLLAPSED_WIDTH;
+            if (offset < 0 || offset > screenLimit){
+                fail(String.format("card %d offset %d is out of [0, %d]", i, offset, screenLimit));
+                return;
+            }
+            if (offset > mGeometry.getOffsetLimit(i)){
+                fail(String.format("card %d offset %d is beyond its limit %d", i, offset, mGeometry.getOffsetLimit(i)));
+                return;
+            }
+        }
+        if (mGeometry.isOpened(mCardCount - 1)){
+            fail("the last card is opened");
+        }
+    }
+
+    private void checkRouting() {
+        int deepest = -1;
+        for (int i = mCardCount - 1; i >= 0 && deepest == -1; i--){
+            if (mGeometry.isOpened(i)) deepest = i;
+        }
+        if (mDeckState.getDeepestOpenedIndex() != deepest){
+            fail(String.format("deepest opened card %d, cached %d", deepest, mDeckState.getDeepestOpenedIndex()));
+            return;
+        }
+
+        for (int i = 0; i < mCardCount; i++){
+            int next = i;
+            while (next < mCardCount - 1 && mGeometry.isOpened(next + 1)){
+                next++;
+            }
+            if (mDeckState.getNextIndex(i) != next){
+                fail(String.format("next card of %d is %d, cached %d", i, next, mDeckState.getNextIndex(i)));
+                return;
+            }
+        }
+    }
+
+    private void checkSettled() {
+        if (mFailure != null) return;
+
+        if (!mDeckMotion.isSettled() && !mFrameClock.hasPendingFrame()){
+            fail("deck is in motion, but no frame is scheduled");
+            return;
+        }
+        if (!mDeckMotion.isSettled()) return;
+
+        for (int i = 0; i < mCardCount; i++){
+            int expected = mGeometry.isOpened(i) ? DeckState.OPENED : DeckState.CLOSED;
+            if (mDeckState.getState(i) != expected){
+                fail(String.format("card %d is in state %d at rest, offset %d",
+                        i, mDeckState.getState(i), mGeometry.getOffset(i)));
+                return;
+            }
+        }
+
+        int deepest = mDeckState.getDeepestOpenedIndex();
+        if (deepest >= 0 && mGeometry.getOffset(deepest) != mGeometry.getMaxOffset(deepest)){
+            fail(String.format("card %d is stuck at offset %d of %d",
+                    deepest, mGeometry.getOffset(deepest), mGeometry.getMaxOffset(deepest)));
+        }
+    }
+
+    private void fail(String message) {
+        if (mFailure == null){
+            mFailure = String.format("%s, operation %d, offsets %s",
+                    message, mOperations, offsetsToString());
+        }
+    }
+
+    private String offsetsToString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 0; i < mCardCount; i++){
+            if (i > 0) sb.append(", ");
+            sb.append(mGeometry.getOffset(i));
+        }
+        return sb.append("]").toString();
+    }
+}
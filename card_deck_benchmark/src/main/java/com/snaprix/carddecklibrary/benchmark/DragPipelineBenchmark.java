@@ -0,0 +1,262 @@
+package com.snaprix.carddecklibrary.benchmark;
+
+import com.snaprix.carddecklibrary.model.DeckGeometry;
+import com.snaprix.carddecklibrary.model.DeckMotion;
+import com.snaprix.carddecklibrary.model.DeckState;
+import com.snaprix.carddecklibrary.model.ManualFrameClock;
+import com.snaprix.carddecklibrary.model.SlideAnimation;
+import com.snaprix.carddecklibrary.model.VelocityEstimator;
+import com.snaprix.carddecklibrary.views.Side;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cost of one move event on its way from the touch to the card offsets through the shipped model:
+ * velocity sample and routing to the deepest opened card, as SlideLayer and SlideController do,
+ * then {@link DeckMotion#drag} with frames of {@link ManualFrameClock}, which coalesce queued drags
+ * and move the active card and cards above it
+ *
+ * every drag moves the finger back and forth and leaves the deck where it started, so one invocation
+ * runs {@link #DRAGS} drags in a row without resetting the deck, long enough for timestamps
+ * of the invocation not to matter; the deck is put to its initial state once per iteration
+ *
+ * scores are per event, {@link OperationsPerInvocation} divides them by {@link #DRAGS} * {@link #EVENTS},
+ * run with gc profiler, gc.alloc.rate.norm is bytes allocated per event
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class DragPipelineBenchmark {
+    /**
+     * move events in one drag: half of them move the finger one way, half back
+     */
+    static final int EVENTS = 128;
+    /**
+     * drags in one invocation
+     */
+    static final int DRAGS = 16;
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int CARD_WIDTH = 320;
+    private static final int COLLAPSED_WIDTH = 48;
+    private static final float MIN_FLING_VELOCITY = 150;
+    private static final long SLIDE_DURATION = 333;
+    // 8 ms between events, high rate touch screen, two events per frame
+    private static final long EVENT_INTERVAL_NANOS = 8000000L;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final int MAX_SETTLE_FRAMES = 600;
+
+    /**
+     * deck of the benchmark, it is put to its initial state before every iteration,
+     * outside of the measured time
+     */
+    public abstract static class Deck {
+        @Param({"3", "5", "10"})
+        public int cardCount;
+
+        @Param({"" + Side.LEFT, "" + Side.RIGHT})
+        public int side;
+
+        DeckGeometry mGeometry;
+        DeckState mDeckState;
+        ManualFrameClock mFrameClock;
+        DeckMotion mDeckMotion;
+        VelocityEstimator mVelocityEstimator;
+
+        int[] mDistances;
+        float[] mPositions;
+
+        // offsets moved by the drags, returned so the work is not eliminated
+        int mMovedCount;
+
+        @Setup(Level.Trial)
+        public void setUpDeck() {
+            mGeometry = new DeckGeometry(cardCount, side);
+            mGeometry.setWidth(0, SCREEN_WIDTH);
+            for (int i = 1; i < cardCount; i++){
+                mGeometry.setWidth(i, CARD_WIDTH);
+            }
+            mGeometry.setCollapsedWidth(COLLAPSED_WIDTH);
+
+            mDeckState = new DeckState(mGeometry);
+            mFrameClock = new ManualFrameClock();
+            mDeckMotion = new DeckMotion(mGeometry, mDeckState, new SlideAnimation(SLIDE_DURATION),
+                    MIN_FLING_VELOCITY, mCallback);
+            mDeckMotion.setFrameClock(mFrameClock);
+            mVelocityEstimator = new VelocityEstimator();
+
+            placeCards();
+            mDeckState.onSettled();
+
+            // finger movement of one drag, converted from opening deltas of the deck side
+            mDistances = new int[EVENTS];
+            mPositions = new float[EVENTS];
+            float x = SCREEN_WIDTH / 2;
+            for (int i = 0; i < EVENTS; i++){
+                mDistances[i] = mGeometry.toOpeningDelta(getOpeningDelta(i));
+                x += mDistances[i];
+                mPositions[i] = x;
+            }
+        }
+
+        @Setup(Level.Iteration)
+        public void setUpDrag() {
+            // the previous drag is released and settled, then cards are put where drags start
+            if (mDeckMotion.isInMotion()){
+                mDeckMotion.release(mDeckState.getNextIndex(0), 0, 0);
+                mFrameClock.runUntilIdle(MAX_SETTLE_FRAMES);
+            }
+            placeCards();
+            mDeckState.onSettled();
+            mDeckState.clearChanges();
+
+            mVelocityEstimator.clear();
+            mMovedCount = 0;
+        }
+
+        abstract void placeCards();
+
+        /**
+         * @return opening delta of the move event within one drag, the sum of all deltas
+         *  should bring the deck back to the offsets of {@link #placeCards()}, called when cards are placed
+         */
+        abstract int getOpeningDelta(int event);
+
+        /**
+         * @return part of the total distance, which falls on the event, when it is spread evenly over count events
+         */
+        static int spread(int distance, int event, int count) {
+            return distance * (event + 1) / count - distance * event / count;
+        }
+
+        int drag(int touchedIndex) {
+            for (int d = 0; d < DRAGS; d++){
+                for (int i = 0; i < EVENTS; i++){
+                    mFrameClock.advanceBy(EVENT_INTERVAL_NANOS);
+                    long eventTime = mFrameClock.nanoTime();
+                    mVelocityEstimator.addSample(eventTime / NANOS_PER_MILLI, mPositions[i]);
+
+                    int activeIndex = mDeckState.getNextIndex(touchedIndex);
+                    mDeckMotion.drag(activeIndex, mDistances[i], eventTime);
+                }
+            }
+            // the last queued movement is applied on the next frame
+            mFrameClock.runFrame();
+            return mMovedCount;
+        }
+
+        private final DeckMotion.Callback mCallback = new DeckMotion.Callback() {
+            @Override
+            public void onRevealing(int index) {
+            }
+
+            @Override
+            public void onMotionStep(int activeIndex, boolean isFirstStep) {
+            }
+
+            @Override
+            public int onOffsetsChanged(int activeIndex) {
+                mMovedCount += activeIndex + 1;
+                return activeIndex + 1;
+            }
+
+            @Override
+            public void onSettled() {
+            }
+
+            @Override
+            public void onFrameEnd() {
+                mDeckState.clearChanges();
+            }
+        };
+    }
+
+    /**
+     * the deck is closed, every event moves the base card: it is opened past its max offset
+     * and closed past its side
+     */
+    @State(Scope.Thread)
+    public static class ClosedDeck extends Deck {
+        @Override
+        void placeCards() {
+            for (int i = 0; i < cardCount; i++){
+                mGeometry.setOffset(i, 0);
+            }
+        }
+
+        @Override
+        int getOpeningDelta(int event) {
+            // 384 px each way, the base card opens by CARD_WIDTH
+            return (event < EVENTS / 2) ? 6 : -6;
+        }
+    }
+
+    /**
+     * every card, which could be opened, is opened, events are routed through the whole deck
+     * and move the deepest opened card with all cards above it
+     */
+    @State(Scope.Thread)
+    public static class OpenedDeck extends Deck {
+        @Override
+        void placeCards() {
+            for (int i = 0; i < cardCount; i++){
+                mGeometry.setOffset(i, 0);
+            }
+            // every opened card pushes cards above it, as they are opened by the user
+            for (int i = 0; i < cardCount - 1; i++){
+                mGeometry.moveTo(i, mGeometry.getMaxOffset(i));
+            }
+
+            // in a deep deck collapsed caps close cards above the deepest ones, events go to
+            // the last card reached from the base one, it is opened fully and cards below it are closed
+            int activeIndex = 0;
+            while (activeIndex < cardCount - 2 && mGeometry.isOpened(activeIndex + 1)){
+                activeIndex++;
+            }
+            mGeometry.moveTo(activeIndex, mGeometry.getMaxOffset(activeIndex));
+            for (int i = activeIndex + 1; i < cardCount; i++){
+                mGeometry.setOffset(i, 0);
+            }
+        }
+
+        @Override
+        int getOpeningDelta(int event) {
+            // the deepest opened card is closed by half of its offset, so events keep going to it,
+            // then it is opened past its offset
+            int closing = mGeometry.getOffset(mDeckState.getNextIndex(0)) / 2;
+            int half = EVENTS / 2;
+            if (event < half){
+                return -spread(closing, event, half);
+            }
+            return spread(closing + CARD_WIDTH / 4, event - half, half);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAGS * EVENTS)
+    public int dragBaseCard(ClosedDeck deck) {
+        return deck.drag(0);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DRAGS * EVENTS)
+    public int dragDeepestCard(OpenedDeck deck) {
+        return deck.drag(0);
+    }
+}
@@ -0,0 +1,44 @@
+package com.snaprix.carddecklibrary.benchmark;
+
+import com.snaprix.carddecklibrary.views.Side;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * short fuzz run with fixed seeds on every build, long runs are done by {@link DeckFuzz}
+ */
+public class DeckSimulatorTest {
+    private static final int[] CARD_COUNTS = {2, 3, 5, 10};
+    private static final int[] SIDES = {Side.LEFT, Side.RIGHT};
+    private static final int SEEDS = 50;
+    private static final int OPERATIONS_PER_RUN = 1000;
+
+    @Test
+    public void invariantsHold() {
+        for (long seed = 0; seed < SEEDS; seed++){
+            for (int cardCount : CARD_COUNTS){
+                for (int side : SIDES){
+                    DeckSimulator.Result result = new DeckSimulator(cardCount, side, seed).run(OPERATIONS_PER_RUN);
+                    assertTrue(String.format("cards=%d side=%d %s", cardCount, side, result), result.isSuccess());
+                }
+            }
+        }
+    }
+
+    @Test
+    public void sameSeedRunsSameDeck() {
+        for (int side : SIDES){
+            DeckSimulator first = new DeckSimulator(5, side, 7);
+            DeckSimulator second = new DeckSimulator(5, side, 7);
+            first.run(OPERATIONS_PER_RUN);
+            second.run(OPERATIONS_PER_RUN);
+
+            for (int i = 0; i < 5; i++){
+                assertEquals("side " + side, first.getGeometry().getOffset(i), second.getGeometry().getOffset(i));
+            }
+        }
+    }
+}
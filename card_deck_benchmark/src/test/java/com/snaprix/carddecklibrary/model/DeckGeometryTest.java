@@ -0,0 +1,276 @@
+package com.snaprix.carddecklibrary.model;
+
+import com.snaprix.carddecklibrary.views.Side;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * every case runs on both sides, offsets are side independent, scrollX and finger movement are not
+ */
+public class DeckGeometryTest {
+    private static final int[] SIDES = {Side.LEFT, Side.RIGHT};
+
+    static final int SCREEN_WIDTH = 1080;
+    static final int MENU_WIDTH = 600;
+    static final int SUB_MENU_WIDTH = 400;
+    static final int COLLAPSED_WIDTH = 48;
+
+    /**
+     * activity content, menu and sub menu
+     */
+    static DeckGeometry createDeck(int side) {
+        DeckGeometry geometry = new DeckGeometry(3, side);
+        geometry.setCollapsedWidth(COLLAPSED_WIDTH);
+        geometry.setWidth(0, SCREEN_WIDTH);
+        geometry.setWidth(1, MENU_WIDTH);
+        geometry.setWidth(2, SUB_MENU_WIDTH);
+        return geometry;
+    }
+
+    /**
+     * @return finger movement, which opens cards of the side by distance
+     */
+    static int opening(int side, int distance) {
+        return (side == Side.LEFT) ? distance : -distance;
+    }
+
+    @Test
+    public void dragOpensCardTowardsSide() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+
+            geometry.drag(0, opening(side, 100));
+            assertEquals("offset, side " + side, 100, geometry.getOffset(0));
+            assertTrue(geometry.isOpened(0));
+            // container of the left deck is scrolled to negative x, so its content moves right
+            assertEquals("scrollX, side " + side, (side == Side.LEFT) ? -100 : 100, geometry.getScrollX(0));
+
+            geometry.drag(0, opening(side, -100));
+            assertEquals("closed offset, side " + side, 0, geometry.getOffset(0));
+            assertFalse(geometry.isOpened(0));
+        }
+    }
+
+    @Test
+    public void dragClampsActiveCard() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+
+            geometry.drag(0, opening(side, -50));
+            assertEquals("closed past side, side " + side, 0, geometry.getOffset(0));
+
+            geometry.drag(0, opening(side, 5000));
+            assertEquals("opened past max, side " + side, MENU_WIDTH, geometry.getOffset(0));
+        }
+    }
+
+    @Test
+    public void upperCardsFollowActiveCard() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.moveTo(0, MENU_WIDTH);
+
+            geometry.drag(1, opening(side, 100));
+            assertEquals("active card, side " + side, 100, geometry.getOffset(1));
+            assertEquals("upper card, side " + side, MENU_WIDTH + 100, geometry.getOffset(0));
+        }
+    }
+
+    @Test
+    public void upperCardsDoNotMoveWhenActiveCardIsClamped() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.moveTo(0, MENU_WIDTH);
+            geometry.moveTo(1, SUB_MENU_WIDTH);
+            int upperOffset = geometry.getOffset(0);
+
+            geometry.drag(1, opening(side, 100));
+            assertEquals("active card, side " + side, SUB_MENU_WIDTH, geometry.getOffset(1));
+            assertEquals("upper card, side " + side, upperOffset, geometry.getOffset(0));
+        }
+    }
+
+    @Test
+    public void upperCardsStayWithinCollapsedCaps() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            // sub menu as wide as the menu pushes activity content off the screen
+            geometry.setWidth(2, MENU_WIDTH);
+            geometry.moveTo(0, MENU_WIDTH);
+            geometry.moveTo(1, MENU_WIDTH);
+
+            // collapsed parts of the activity content and the menu stay on the screen
+            assertEquals("base card, side " + side, SCREEN_WIDTH - COLLAPSED_WIDTH, geometry.getOffset(0));
+            assertEquals("menu, side " + side, MENU_WIDTH, geometry.getOffset(1));
+            assertEquals("limit, side " + side, SCREEN_WIDTH - COLLAPSED_WIDTH, geometry.getOffsetLimit(0));
+        }
+    }
+
+    @Test
+    public void closingActiveCardBringsUpperCardBack() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.moveTo(0, MENU_WIDTH);
+            geometry.moveTo(1, SUB_MENU_WIDTH);
+
+            geometry.drag(1, opening(side, -100));
+            assertEquals("active card, side " + side, SUB_MENU_WIDTH - 100, geometry.getOffset(1));
+            assertEquals("upper card, side " + side, MENU_WIDTH + SUB_MENU_WIDTH - 100, geometry.getOffset(0));
+
+            geometry.drag(1, opening(side, -SUB_MENU_WIDTH));
+            assertEquals("active card, side " + side, 0, geometry.getOffset(1));
+            // upper card still reveals the whole closed card
+            assertEquals("upper card, side " + side, MENU_WIDTH, geometry.getOffset(0));
+        }
+    }
+
+    @Test
+    public void moveToChangesOnlyGivenOffsets() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.moveTo(0, MENU_WIDTH);
+
+            int[] offsets = {geometry.getOffset(0), geometry.getOffset(1), geometry.getOffset(2)};
+            geometry.moveTo(offsets, 1, SUB_MENU_WIDTH);
+
+            assertEquals("deck, side " + side, MENU_WIDTH, geometry.getOffset(0));
+            assertEquals("deck, side " + side, 0, geometry.getOffset(1));
+            assertEquals("offsets, side " + side, MENU_WIDTH + SUB_MENU_WIDTH, offsets[0]);
+            assertEquals("offsets, side " + side, SUB_MENU_WIDTH, offsets[1]);
+        }
+    }
+
+    @Test
+    public void lastCardStaysClosed() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+
+            geometry.setOffset(2, 100);
+            geometry.drag(2, opening(side, 100));
+            assertEquals("side " + side, 0, geometry.getOffset(2));
+            assertEquals("side " + side, 0, geometry.getOffsetLimit(2));
+        }
+    }
+
+    @Test
+    public void shrinkingCardClampsOffsets() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.moveTo(0, MENU_WIDTH);
+            geometry.moveTo(1, SUB_MENU_WIDTH);
+
+            // rotation to portrait
+            geometry.setWidth(0, 720);
+            assertEquals("base card, side " + side, 720 - COLLAPSED_WIDTH, geometry.getOffset(0));
+            assertEquals("menu, side " + side, SUB_MENU_WIDTH, geometry.getOffset(1));
+        }
+    }
+
+    @Test
+    public void closedDeckShowsOnlyBaseCard() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.computeVisibleSpans();
+
+            assertFalse("base card, side " + side, geometry.isCovered(0));
+            assertEquals(0, geometry.getVisibleLeft(0));
+            assertEquals(SCREEN_WIDTH, geometry.getVisibleRight(0));
+            assertTrue("menu, side " + side, geometry.isCovered(1));
+            assertTrue("sub menu, side " + side, geometry.isCovered(2));
+        }
+    }
+
+    @Test
+    public void visibleSpansAreInCoordinatesOfCard() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.moveTo(0, 400);
+            geometry.computeVisibleSpans();
+
+            assertFalse("base card, side " + side, geometry.isCovered(0));
+            assertEquals(0, geometry.getVisibleLeft(0));
+            assertEquals(SCREEN_WIDTH, geometry.getVisibleRight(0));
+
+            // 400 px of the menu next to the side are revealed
+            assertFalse("menu, side " + side, geometry.isCovered(1));
+            if (side == Side.LEFT){
+                assertEquals(0, geometry.getVisibleLeft(1));
+                assertEquals(400, geometry.getVisibleRight(1));
+            } else {
+                assertEquals(MENU_WIDTH - 400, geometry.getVisibleLeft(1));
+                assertEquals(MENU_WIDTH, geometry.getVisibleRight(1));
+            }
+
+            // sub menu is under the revealed part of the menu
+            assertTrue("sub menu, side " + side, geometry.isCovered(2));
+        }
+    }
+
+    @Test
+    public void visibleSpansOfNestedCards() {
+        for (int side : SIDES){
+            DeckGeometry geometry = createDeck(side);
+            geometry.moveTo(0, MENU_WIDTH);
+            geometry.moveTo(1, SUB_MENU_WIDTH);
+            geometry.computeVisibleSpans();
+
+            // base card is partly pushed off the screen, but it is never clipped by cards below it
+            assertEquals(0, geometry.getVisibleLeft(0));
+            assertEquals(SCREEN_WIDTH, geometry.getVisibleRight(0));
+
+            // the menu is fully visible between the sub menu and activity content
+            assertEquals(0, geometry.getVisibleLeft(1));
+            assertEquals(MENU_WIDTH, geometry.getVisibleRight(1));
+
+            assertFalse("sub menu, side " + side, geometry.isCovered(2));
+            assertEquals(0, geometry.getVisibleLeft(2));
+            assertEquals(SUB_MENU_WIDTH, geometry.getVisibleRight(2));
+        }
+    }
+
+    /**
+     * base card is sized by its parent, its width is not known, when the saved deck is restored
+     */
+    @Test
+    public void restoredOffsetsWaitForAllWidths() {
+        for (int side : SIDES){
+            DeckGeometry geometry = new DeckGeometry(3, side);
+            geometry.setCollapsedWidth(COLLAPSED_WIDTH);
+            geometry.setWidth(1, MENU_WIDTH);
+            geometry.setWidth(2, SUB_MENU_WIDTH);
+            assertFalse(geometry.isMeasured());
+
+            // sub menu is opened, base card is beyond the width of the menu
+            geometry.setOffset(0, MENU_WIDTH + SUB_MENU_WIDTH);
+            geometry.setOffset(1, SUB_MENU_WIDTH);
+            geometry.setOffset(2, 100);
+            assertEquals("side " + side, MENU_WIDTH + SUB_MENU_WIDTH, geometry.getOffset(0));
+            assertEquals("the last card stays closed, side " + side, 0, geometry.getOffset(2));
+
+            geometry.setWidth(0, SCREEN_WIDTH);
+            assertTrue(geometry.isMeasured());
+            assertEquals("side " + side, MENU_WIDTH + SUB_MENU_WIDTH, geometry.getOffset(0));
+            assertEquals("side " + side, SUB_MENU_WIDTH, geometry.getOffset(1));
+        }
+    }
+
+    @Test
+    public void restoredOffsetsAreClampedOnceMeasured() {
+        for (int side : SIDES){
+            DeckGeometry geometry = new DeckGeometry(3, side);
+            geometry.setCollapsedWidth(COLLAPSED_WIDTH);
+            geometry.setWidth(1, MENU_WIDTH);
+            geometry.setWidth(2, SUB_MENU_WIDTH);
+
+            // saved on a wider screen
+            geometry.setOffset(0, 2 * SCREEN_WIDTH);
+            geometry.setWidth(0, SCREEN_WIDTH);
+            assertEquals("side " + side, geometry.getOffsetLimit(0), geometry.getOffset(0));
+            assertEquals("side " + side, SCREEN_WIDTH - COLLAPSED_WIDTH, geometry.getOffset(0));
+        }
+    }
+}
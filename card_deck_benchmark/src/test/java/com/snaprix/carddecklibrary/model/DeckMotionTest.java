@@ -0,0 +1,251 @@
+package com.snaprix.carddecklibrary.model;
+
+import com.snaprix.carddecklibrary.views.Side;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * drags and animations of the deck on frames of {@link ManualFrameClock}
+ */
+public class DeckMotionTest {
+    private static final int[] SIDES = {Side.LEFT, Side.RIGHT};
+
+    private static final float MIN_FLING_VELOCITY = 150;
+    private static final long SLIDE_DURATION = 333;
+    private static final int MAX_SETTLE_FRAMES = 600;
+
+    private DeckGeometry mGeometry;
+    private DeckState mDeckState;
+    private ManualFrameClock mFrameClock;
+    private DeckMotion mDeckMotion;
+
+    private int mOffsetsChangedCount;
+    private int mSettledCount;
+    private int mRevealingIndex;
+
+    private void createDeck(int side) {
+        mGeometry = DeckGeometryTest.createDeck(side);
+        mDeckState = new DeckState(mGeometry);
+        mFrameClock = new ManualFrameClock();
+        mDeckMotion = new DeckMotion(mGeometry, mDeckState, new SlideAnimation(SLIDE_DURATION),
+                MIN_FLING_VELOCITY, mCallback);
+        mDeckMotion.setFrameClock(mFrameClock);
+
+        mOffsetsChangedCount = 0;
+        mSettledCount = 0;
+        mRevealingIndex = -1;
+    }
+
+    private int opening(int distance) {
+        return DeckGeometryTest.opening(mGeometry.getSide(), distance);
+    }
+
+    private void settle() {
+        assertTrue("deck did not settle", mFrameClock.runUntilIdle(MAX_SETTLE_FRAMES));
+        assertTrue(mDeckMotion.isSettled());
+    }
+
+    @Test
+    public void dragsOfOneFrameMoveDeckOnce() {
+        for (int side : SIDES){
+            createDeck(side);
+
+            mDeckMotion.drag(0, opening(30));
+            mDeckMotion.drag(0, opening(20));
+            assertEquals("moved before frame, side " + side, 0, mGeometry.getOffset(0));
+
+            mFrameClock.runFrame();
+            assertEquals("side " + side, 50, mGeometry.getOffset(0));
+            assertEquals("side " + side, 1, mOffsetsChangedCount);
+            assertEquals("side " + side, 0, mRevealingIndex);
+            assertEquals(DeckState.DRAGGING, mDeckState.getState(0));
+            assertTrue(mDeckMotion.isInMotion());
+        }
+    }
+
+    @Test
+    public void fractionsOfPixelAreKept() {
+        createDeck(Side.RIGHT);
+
+        for (int i = 0; i < 4; i++){
+            mDeckMotion.drag(0, opening(1) * 0.5f);
+            mFrameClock.runFrame();
+        }
+        assertEquals(2, mGeometry.getOffset(0));
+    }
+
+    @Test
+    public void slowReleaseSettlesByDistance() {
+        for (int side : SIDES){
+            createDeck(side);
+            mDeckMotion.drag(0, opening(200));
+            mFrameClock.runFrame();
+
+            mDeckMotion.release(0, opening(200), 0);
+            settle();
+            assertEquals("side " + side, 600, mGeometry.getOffset(0));
+            assertEquals(DeckState.OPENED, mDeckState.getState(0));
+            assertEquals(1, mSettledCount);
+
+            mDeckMotion.drag(0, opening(-100));
+            mFrameClock.runFrame();
+            mDeckMotion.release(0, opening(-100), 0);
+            settle();
+            assertEquals("side " + side, 0, mGeometry.getOffset(0));
+            assertEquals(DeckState.CLOSED, mDeckState.getState(0));
+        }
+    }
+
+    @Test
+    public void flingSettlesByDirection() {
+        for (int side : SIDES){
+            createDeck(side);
+            mDeckMotion.drag(0, opening(500));
+            mFrameClock.runFrame();
+
+            // the finger went back at the end of the gesture
+            mDeckMotion.release(0, opening(500), opening(-2000));
+            settle();
+            assertEquals("side " + side, 0, mGeometry.getOffset(0));
+        }
+    }
+
+    @Test
+    public void dragStopsAnimation() {
+        for (int side : SIDES){
+            createDeck(side);
+            mDeckMotion.settle(0, true, 0);
+            mFrameClock.runFrame();
+            mFrameClock.runFrame();
+            int offset = mGeometry.getOffset(0);
+            assertTrue("side " + side, offset > 0 && offset < 600);
+
+            mDeckMotion.drag(0, opening(10));
+            assertFalse(mDeckMotion.getAnimation().isRunning());
+            mFrameClock.runFrame();
+            assertEquals("side " + side, offset + 10, mGeometry.getOffset(0));
+            assertEquals(0, mSettledCount);
+        }
+    }
+
+    @Test
+    public void nestedCardSettlesWithCardsAbove() {
+        for (int side : SIDES){
+            createDeck(side);
+            mDeckMotion.settle(0, true, 0);
+            settle();
+
+            mDeckMotion.drag(mDeckState.getNextIndex(0), opening(100));
+            mFrameClock.runFrame();
+            assertEquals("side " + side, 0, mDeckState.getNextIndex(0));
+            assertEquals("base card is at its max offset, side " + side, 600, mGeometry.getOffset(0));
+
+            mDeckMotion.settle(1, true, 0);
+            settle();
+            assertEquals("side " + side, 400, mGeometry.getOffset(1));
+            assertEquals("side " + side, 1000, mGeometry.getOffset(0));
+            assertEquals(1, mDeckState.getNextIndex(0));
+            assertEquals(DeckState.OPENED, mDeckState.getState(1));
+        }
+    }
+
+    /**
+     * resting offsets of a drag are where a fling in the direction of its last move brings the deck
+     */
+    @Test
+    public void restingOffsetsOfDragFollowLastMove() {
+        for (int side : SIDES){
+            for (int lastMove : new int[]{20, -20}){
+                createDeck(side);
+                // menu is opened, the sub menu is dragged
+                mDeckMotion.settle(0, true, 0);
+                settle();
+
+                mDeckMotion.drag(1, opening(150));
+                mFrameClock.runFrame();
+                mDeckMotion.drag(1, opening(lastMove));
+                mFrameClock.runFrame();
+                assertTrue(mDeckMotion.isInMotion());
+
+                int[] resting = new int[mGeometry.getCardCount()];
+                mDeckMotion.getRestingOffsets(resting);
+                assertEquals("dragged card, side " + side, (lastMove > 0) ? DeckGeometryTest.SUB_MENU_WIDTH : 0, resting[1]);
+
+                mDeckMotion.release(1, opening(150 + lastMove), opening(lastMove * 100));
+                settle();
+                for (int i = 0; i < resting.length; i++){
+                    assertEquals("card " + i + ", side " + side, mGeometry.getOffset(i), resting[i]);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void restingOffsetsOfAnimationAreItsTarget() {
+        for (int side : SIDES){
+            createDeck(side);
+
+            mDeckMotion.settle(0, true, 0);
+            mFrameClock.runFrame();
+            mFrameClock.runFrame();
+            assertTrue(mDeckMotion.isInMotion());
+
+            int[] resting = new int[mGeometry.getCardCount()];
+            mDeckMotion.getRestingOffsets(resting);
+            assertEquals("side " + side, DeckGeometryTest.MENU_WIDTH, resting[0]);
+            assertTrue("deck itself is not moved, side " + side, mGeometry.getOffset(0) < DeckGeometryTest.MENU_WIDTH);
+
+            settle();
+            mDeckMotion.getRestingOffsets(resting);
+            assertEquals("side " + side, mGeometry.getOffset(0), resting[0]);
+        }
+    }
+
+    @Test
+    public void availableDragCountsPendingDrag() {
+        for (int side : SIDES){
+            createDeck(side);
+
+            assertEquals("closed card could not close, side " + side, 0, mDeckMotion.getAvailableDrag(0, opening(-10)));
+            assertEquals("side " + side, opening(10), mDeckMotion.getAvailableDrag(0, opening(10)));
+
+            mDeckMotion.drag(0, opening(590));
+            assertEquals("side " + side, opening(10), mDeckMotion.getAvailableDrag(0, opening(50)));
+
+            mFrameClock.runFrame();
+            assertEquals("side " + side, opening(10), mDeckMotion.getAvailableDrag(0, opening(50)));
+            assertEquals("side " + side, opening(-50), mDeckMotion.getAvailableDrag(0, opening(-50)));
+        }
+    }
+
+    private final DeckMotion.Callback mCallback = new DeckMotion.Callback() {
+        @Override
+        public void onRevealing(int index) {
+            mRevealingIndex = index;
+        }
+
+        @Override
+        public void onMotionStep(int activeIndex, boolean isFirstStep) {
+        }
+
+        @Override
+        public int onOffsetsChanged(int activeIndex) {
+            mOffsetsChangedCount++;
+            return activeIndex + 1;
+        }
+
+        @Override
+        public void onSettled() {
+            mSettledCount++;
+        }
+
+        @Override
+        public void onFrameEnd() {
+            mDeckState.clearChanges();
+        }
+    };
+}
@@ -0,0 +1,89 @@
+package com.snaprix.carddecklibrary.model;
+
+import com.snaprix.carddecklibrary.views.Side;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DeckStateTest {
+    private static final int[] SIDES = {Side.LEFT, Side.RIGHT};
+
+    @Test
+    public void closedDeckRoutesEventsToTouchedCard() {
+        for (int side : SIDES){
+            DeckGeometry geometry = DeckGeometryTest.createDeck(side);
+            DeckState deckState = new DeckState(geometry);
+            deckState.onSettled();
+
+            assertEquals(0, deckState.getNextIndex(0));
+            assertEquals(1, deckState.getNextIndex(1));
+            assertEquals(-1, deckState.getDeepestOpenedIndex());
+            assertEquals(DeckState.CLOSED, deckState.getState(0));
+        }
+    }
+
+    @Test
+    public void eventsGoToDeepestOpenedCard() {
+        for (int side : SIDES){
+            DeckGeometry geometry = DeckGeometryTest.createDeck(side);
+            DeckState deckState = new DeckState(geometry);
+
+            geometry.moveTo(0, 600);
+            deckState.onSettled();
+            // menu is revealed, but it is closed itself, it is moved by the base card
+            assertEquals("side " + side, 0, deckState.getNextIndex(0));
+            assertEquals("side " + side, 0, deckState.getDeepestOpenedIndex());
+
+            geometry.moveTo(1, 400);
+            deckState.onSettled();
+            assertEquals("side " + side, 1, deckState.getNextIndex(0));
+            assertEquals("side " + side, 1, deckState.getNextIndex(1));
+            assertEquals("side " + side, 2, deckState.getNextIndex(2));
+            assertEquals("side " + side, 1, deckState.getDeepestOpenedIndex());
+        }
+    }
+
+    @Test
+    public void settledStatesFollowOffsets() {
+        DeckGeometry geometry = DeckGeometryTest.createDeck(Side.RIGHT);
+        DeckState deckState = new DeckState(geometry);
+        deckState.onSettled();
+        deckState.clearChanges();
+
+        geometry.moveTo(0, 600);
+        deckState.onSettled();
+
+        assertEquals(DeckState.OPENED, deckState.getState(0));
+        assertEquals(DeckState.CLOSED, deckState.getState(1));
+        assertTrue(deckState.isChanged(0));
+        assertFalse(deckState.isChanged(1));
+
+        deckState.clearChanges();
+        assertFalse(deckState.isChanged(0));
+    }
+
+    @Test
+    public void motionChangesStatesOfActiveCardAndCardsAbove() {
+        DeckGeometry geometry = DeckGeometryTest.createDeck(Side.LEFT);
+        DeckState deckState = new DeckState(geometry);
+        geometry.moveTo(0, 600);
+        deckState.onSettled();
+
+        geometry.moveTo(1, 100);
+        deckState.onMoved(1, DeckState.DRAGGING);
+        assertEquals(DeckState.DRAGGING, deckState.getState(0));
+        assertEquals(DeckState.DRAGGING, deckState.getState(1));
+        assertEquals(DeckState.CLOSED, deckState.getState(2));
+        assertEquals(1, deckState.getNextIndex(0));
+        assertEquals(1, deckState.getDeepestOpenedIndex());
+
+        geometry.moveTo(1, 0);
+        deckState.onMoved(1, DeckState.SETTLING);
+        assertEquals(DeckState.SETTLING, deckState.getState(1));
+        assertEquals(0, deckState.getNextIndex(0));
+        assertEquals(0, deckState.getDeepestOpenedIndex());
+    }
+}
@@ -0,0 +1,62 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.app.Activity;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.widget.TextView;
+
+import com.snaprix.carddecklibrary.R;
+import com.snaprix.carddecklibrary.model.ManualFrameClock;
+
+/**
+ * deck of three cards, frames of the deck are stepped by the test,
+ * content of the menu requests layout on every frame, which reveals it
+ */
+public class DeckTestActivity extends Activity {
+    private SlideController mSlideController;
+    private ManualFrameClock mFrameClock;
+    private LayoutProbeView mMenuContent;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(createText("content"));
+
+        Resources res = getResources();
+        int collapsedWidth = res.getDimensionPixelSize(R.dimen.menu_width_collapsed);
+        mFrameClock = new ManualFrameClock(System.nanoTime(), ManualFrameClock.FRAME_INTERVAL_NANOS);
+        mSlideController = new SlideController.Builder(this, Side.LEFT)
+                .addCard(R.id.card_2_layer, res.getDimensionPixelSize(R.dimen.menu_width), collapsedWidth)
+                .addCard(R.id.card_3_layer, res.getDimensionPixelSize(R.dimen.sub_menu_width), collapsedWidth)
+                .setFrameClock(mFrameClock)
+                .build();
+
+        mMenuContent = new LayoutProbeView(this, mSlideController);
+        mSlideController.getLayer(2).addView(mMenuContent);
+        mSlideController.getLayer(3).addView(createText("sub menu"));
+        mSlideController.setOnRevealListener(new OnRevealListener() {
+            @Override
+            public void onRevealProgress(SlideLayer layer, float progress) {
+                mMenuContent.requestContentLayout();
+            }
+        });
+    }
+
+    private TextView createText(String text){
+        TextView textView = new TextView(this);
+        textView.setText(text);
+        return textView;
+    }
+
+    public SlideController getSlideController() {
+        return mSlideController;
+    }
+
+    public LayoutProbeView getMenuContent() {
+        return mMenuContent;
+    }
+
+    public ManualFrameClock getFrameClock() {
+        return mFrameClock;
+    }
+}
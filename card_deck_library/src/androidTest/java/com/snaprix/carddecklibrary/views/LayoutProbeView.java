@@ -0,0 +1,59 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.content.Context;
+import android.view.View;
+
+/**
+ * content, which requests layout whenever it is asked to, and counts its layout passes
+ * separately for the settled deck and the deck in motion
+ */
+public class LayoutProbeView extends View {
+    private final SlideController mController;
+
+    private int mRequestCount;
+    private int mLayoutCount;
+    private int mMotionLayoutCount;
+
+    public LayoutProbeView(Context context, SlideController controller) {
+        super(context);
+        mController = controller;
+    }
+
+    /**
+     * content changed its size, as text or image loaded while the card is revealed
+     */
+    public void requestContentLayout() {
+        mRequestCount++;
+        requestLayout();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        mLayoutCount++;
+        if (!mController.isSettled()){
+            mMotionLayoutCount++;
+        }
+    }
+
+    public void resetCounts() {
+        mRequestCount = 0;
+        mLayoutCount = 0;
+        mMotionLayoutCount = 0;
+    }
+
+    public int getRequestCount() {
+        return mRequestCount;
+    }
+
+    public int getLayoutCount() {
+        return mLayoutCount;
+    }
+
+    /**
+     * @return layout passes, which ran while the deck was dragged or animated
+     */
+    public int getMotionLayoutCount() {
+        return mMotionLayoutCount;
+    }
+}
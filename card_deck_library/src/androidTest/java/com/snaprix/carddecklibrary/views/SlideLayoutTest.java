@@ -0,0 +1,117 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.os.SystemClock;
+import android.test.ActivityInstrumentationTestCase2;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.snaprix.carddecklibrary.R;
+import com.snaprix.carddecklibrary.model.DeckState;
+import com.snaprix.carddecklibrary.model.ManualFrameClock;
+
+/**
+ * drags the deck, while its content requests layout on every frame,
+ * and checks that layout is deferred until the deck settles
+ *
+ * every event is followed by the traversal of the window: a message posted to the main thread
+ * runs after the pending traversal, which blocks other messages until it is done
+ */
+public class SlideLayoutTest extends ActivityInstrumentationTestCase2<DeckTestActivity> {
+    private static final long EVENT_INTERVAL = 16;
+    private static final int MOVE_COUNT = 30;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    // frames to wait for the deck to settle after release, 10 seconds at 60 Hz
+    private static final int MAX_SETTLE_FRAMES = 600;
+
+    private static final Runnable NO_OP = new Runnable() {
+        @Override
+        public void run() {
+        }
+    };
+
+    private DeckTestActivity mActivity;
+    private LayoutProbeView mContent;
+    // time of the frame clock at the down event
+    private long mDownNanoTime;
+
+    public SlideLayoutTest() {
+        super(DeckTestActivity.class);
+    }
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        mActivity = getActivity();
+        mContent = mActivity.getMenuContent();
+        // the first layout of the deck is done
+        getInstrumentation().waitForIdleSync();
+    }
+
+    public void testLayoutIsDeferredUntilDeckSettles() throws Throwable {
+        final SlideController controller = mActivity.getSlideController();
+        final ManualFrameClock frameClock = mActivity.getFrameClock();
+        final View decorView = mActivity.getWindow().getDecorView();
+
+        // from the edge of the base card to the right, the base card opens
+        float density = mActivity.getResources().getDisplayMetrics().density;
+        final float x = 4 * density;
+        final float y = decorView.getHeight() / 2;
+        final int distance = mActivity.getResources().getDimensionPixelSize(R.dimen.menu_width);
+
+        // runs after the first traversal, layouts of the content before the drag are not counted
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mContent.resetCounts();
+                mDownNanoTime = frameClock.nanoTime();
+            }
+        });
+
+        final long downTime = SystemClock.uptimeMillis();
+        dispatch(decorView, frameClock, downTime, downTime, MotionEvent.ACTION_DOWN, x, y);
+        for (int i = 1; i <= MOVE_COUNT; i++){
+            dispatch(decorView, frameClock, downTime, downTime + i * EVENT_INTERVAL,
+                    MotionEvent.ACTION_MOVE, x + (float) distance * i / MOVE_COUNT, y);
+            assertEquals("layout at move " + i, 0, mContent.getLayoutCount());
+        }
+        assertTrue("content did not request layout during the drag", mContent.getRequestCount() > 0);
+
+        dispatch(decorView, frameClock, downTime, downTime + (MOVE_COUNT + 1) * EVENT_INTERVAL,
+                MotionEvent.ACTION_UP, x + distance, y);
+        final boolean[] isIdle = new boolean[1];
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                isIdle[0] = frameClock.runUntilIdle(MAX_SETTLE_FRAMES);
+            }
+        });
+        // deferred layout runs on the traversal after the deck settled
+        runTestOnUiThread(NO_OP);
+
+        assertTrue("deck did not settle", isIdle[0] && controller.isSettled());
+        assertEquals(DeckState.OPENED, controller.getCardState(controller.getLayer(1)));
+        assertEquals("layout during motion", 0, mContent.getMotionLayoutCount());
+        assertEquals("layout after motion", 1, mContent.getLayoutCount());
+    }
+
+    /**
+     * dispatches the event after frames, which passed before it, and waits for the traversal
+     */
+    private void dispatch(final View target, final ManualFrameClock frameClock, final long downTime,
+                          final long eventTime, final int action, final float x, final float y) throws Throwable {
+        runTestOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                long nanoTime = mDownNanoTime + (eventTime - downTime) * NANOS_PER_MILLI;
+                while (frameClock.getNextFrameTime() <= nanoTime){
+                    frameClock.runFrame();
+                }
+
+                MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+                target.dispatchTouchEvent(event);
+                event.recycle();
+            }
+        });
+        runTestOnUiThread(NO_OP);
+    }
+}
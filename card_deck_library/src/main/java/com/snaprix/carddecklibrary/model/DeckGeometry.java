@@ -0,0 +1,348 @@
+package com.snaprix.carddecklibrary.model;
+
+import com.snaprix.carddecklibrary.views.Side;
+
+/**
+ * offsets of the cards in the deck, kept in plain int arrays without any android types
+ *
+ * card with index i is a layer with number i + 1, opening card i reveals card i + 1 below it
+ *
+ * offset is side independent:
+ *  0 - card is closed,
+ *  positive value - card is moved away from its side by this number of pixels
+ * use {@link #getScrollX(int)} to convert it to the container scrollX
+ */
+public class DeckGeometry {
+    private final int mSide;
+    private final int mCardCount;
+
+    private final int[] mOffsets;
+    private final int[] mWidths;
+    private final int[] mCollapsedWidths;
+
+    /**
+     * max offset of the card when some upper card is active,
+     * width of the card minus collapsed widths of this card and all cards above it
+     */
+    private final int[] mCollapsedCaps;
+
+    /**
+     * part of the card, which is not covered by cards above it,
+     * in coordinates of the card itself, see {@link #computeVisibleSpans()}
+     */
+    private final int[] mVisibleLefts;
+    private final int[] mVisibleRights;
+
+    public DeckGeometry(int cardCount, int side) {
+        if (cardCount < 1) throw new IllegalArgumentException("deck should have at least one card");
+
+        mSide = side;
+        mCardCount = cardCount;
+
+        mOffsets = new int[cardCount];
+        mWidths = new int[cardCount];
+        mCollapsedWidths = new int[cardCount];
+        mCollapsedCaps = new int[cardCount];
+
+        mVisibleLefts = new int[cardCount];
+        mVisibleRights = new int[cardCount];
+    }
+
+    public int getSide() {
+        return mSide;
+    }
+
+    public int getCardCount() {
+        return mCardCount;
+    }
+
+    public int getWidth(int index) {
+        return mWidths[index];
+    }
+
+    public int getCollapsedWidth(int index) {
+        return mCollapsedWidths[index];
+    }
+
+    public int getOffset(int index) {
+        return mOffsets[index];
+    }
+
+    /**
+     * @return true when card is moved away at least by one pixel
+     */
+    public boolean isOpened(int index) {
+        return mOffsets[index] != 0;
+    }
+
+    /**
+     * @return container scrollX for the card:
+     *  negative value for {@link Side#LEFT} when card is opened,
+     *  positive value for {@link Side#RIGHT}
+     */
+    public int getScrollX(int index) {
+        return toScrollX(mOffsets[index]);
+    }
+
+    public int toScrollX(int offset) {
+        switch (mSide){
+            case Side.LEFT:
+                return -offset;
+            default:
+                return offset;
+        }
+    }
+
+    /**
+     * @return offset at which card fully reveals the card below it,
+     *  the last card has nothing to reveal and always stays closed
+     */
+    public int getMaxOffset(int index) {
+        int childIndex = index + 1;
+        return (childIndex < mCardCount) ? mWidths[childIndex] : 0;
+    }
+
+    /**
+     * @return the largest offset the card could have: upper card stays beyond its max offset
+     *  up to its collapsed cap, while some lower card is opened
+     */
+    public int getOffsetLimit(int index) {
+        if (index == mCardCount - 1) return 0;
+        return Math.max(getMaxOffset(index), mCollapsedCaps[index]);
+    }
+
+    /**
+     * @return true when width of every card is known, before that limits of offsets are not known either
+     */
+    public boolean isMeasured() {
+        for (int i = 0; i < mCardCount; i++){
+            if (mWidths[i] <= 0) return false;
+        }
+        return true;
+    }
+
+    /**
+     * puts the card at the offset without moving other cards, used to restore saved deck,
+     * offset is clamped to its limit only once the deck is measured, see {@link #isMeasured()}
+     */
+    public void setOffset(int index, int offset) {
+        if (isMeasured()){
+            mOffsets[index] = clamp(offset, getOffsetLimit(index));
+        } else {
+            // the last card has nothing to reveal whatever the widths are
+            mOffsets[index] = (index == mCardCount - 1) ? 0 : Math.max(0, offset);
+        }
+    }
+
+    public void setWidth(int index, int width) {
+        mWidths[index] = width;
+        updateCaps();
+    }
+
+    public void setCollapsedWidth(int index, int collapsedWidth) {
+        mCollapsedWidths[index] = collapsedWidth;
+        updateCaps();
+    }
+
+    /**
+     * the same collapsed width for every card in the deck
+     */
+    public void setCollapsedWidth(int collapsedWidth) {
+        for (int i = 0; i < mCardCount; i++){
+            mCollapsedWidths[i] = collapsedWidth;
+        }
+        updateCaps();
+    }
+
+    private void updateCaps(){
+        int collapsed = 0;
+        for (int i = 0; i < mCardCount; i++){
+            collapsed += mCollapsedWidths[i];
+            mCollapsedCaps[i] = Math.max(0, mWidths[i] - collapsed);
+        }
+
+        // restored offsets wait for the last unknown width, a card sized by its parent
+        // (the base card) has width 0 until the first layout and would drop them to max offsets
+        if (!isMeasured()) return;
+
+        // sizes could shrink (rotation), do not leave cards beyond their new bounds
+        for (int i = 0; i < mCardCount; i++){
+            mOffsets[i] = clamp(mOffsets[i], getOffsetLimit(i));
+        }
+    }
+
+    /**
+     * converts finger movement into offset change
+     *
+     * @param distanceX - positive value, when moving from left to right;
+     *              negative value, when moving from right to left
+     * @return positive value when movement opens cards
+     */
+    public int toOpeningDelta(int distanceX) {
+        switch (mSide){
+            case Side.LEFT:
+                return distanceX;
+            default:
+                return -distanceX;
+        }
+    }
+
+    /**
+     * @param velocityX - positive value, when moving from left to right
+     * @return positive value when movement opens cards
+     */
+    public float toOpeningVelocity(float velocityX) {
+        switch (mSide){
+            case Side.LEFT:
+                return velocityX;
+            default:
+                return -velocityX;
+        }
+    }
+
+    /**
+     * moves active card by finger movement, cards above it follow as far as their caps allow
+     *
+     * @param distanceX - positive value, when moving from left to right;
+     *              negative value, when moving from right to left
+     */
+    public void drag(int activeIndex, int distanceX) {
+        moveBy(activeIndex, toOpeningDelta(distanceX));
+    }
+
+    /**
+     * moves active card to the offset, cards above it follow as far as their caps allow
+     */
+    public void moveTo(int activeIndex, int offset) {
+        moveBy(mOffsets, activeIndex, offset - mOffsets[activeIndex]);
+    }
+
+    /**
+     * the same as {@link #moveTo(int, int)}, but moves cards in the given offsets, not in the deck,
+     * used to find where the deck ends up
+     */
+    public void moveTo(int[] offsets, int activeIndex, int offset) {
+        moveBy(offsets, activeIndex, offset - offsets[activeIndex]);
+    }
+
+    /**
+     * computes offsets of active card and all cards above it in one pass,
+     * cards below the active one are not changed
+     *
+     * @param delta - positive value opens the active card, negative closes it
+     */
+    public void moveBy(int activeIndex, int delta) {
+        moveBy(mOffsets, activeIndex, delta);
+    }
+
+    private void moveBy(int[] offsets, int activeIndex, int delta) {
+        int previousOffset = offsets[activeIndex];
+        offsets[activeIndex] = clamp(previousOffset + delta, getMaxOffset(activeIndex));
+        // cards above follow the active card only as far as it actually moved
+        final int activeDelta = offsets[activeIndex] - previousOffset;
+
+        final int activeWidth = mWidths[activeIndex];
+        // distance from the side of the screen to the far edge of the active card
+        final int distanceSide = activeWidth + offsets[activeIndex];
+
+        for (int i = activeIndex - 1; i >= 0; i--){
+            int adjDelta = activeDelta;
+            if (activeDelta < 0){
+                if (offsets[i] < activeWidth){
+                    // upper card is closing, but it still covers the active card, keep it in place
+                    adjDelta = 0;
+                } else {
+                    // do not close it further than the edge of the active card
+                    adjDelta = Math.max(activeDelta, activeWidth - offsets[i]);
+                }
+            }
+
+            int maxOffset = Math.min(distanceSide, mCollapsedCaps[i]);
+            offsets[i] = clamp(offsets[i] + adjDelta, maxOffset);
+        }
+    }
+
+    /**
+     * @return offset within [0, maxOffset]
+     */
+    private static int clamp(int offset, int maxOffset) {
+        if (offset < 0) return 0;
+        if (offset > maxOffset) return maxOffset;
+        return offset;
+    }
+
+    /**
+     * finds part of every card, which is not covered by cards above it,
+     * cards are expected to be opaque, each card spans from its offset to offset + width
+     * measured from the side of the deck
+     */
+    public void computeVisibleSpans() {
+        for (int i = 0; i < mCardCount; i++){
+            int offset = mOffsets[i];
+            int start = offset;
+            int end = offset + mWidths[i];
+
+            // cut covered parts from both ends, until no upper card covers any of them
+            boolean changed = true;
+            while (changed && start < end){
+                changed = false;
+                for (int j = 0; j < i; j++){
+                    int upperStart = mOffsets[j];
+                    int upperEnd = upperStart + mWidths[j];
+
+                    if (upperStart <= start && upperEnd > start){
+                        start = upperEnd;
+                        changed = true;
+                    }
+                    if (upperStart < end && upperEnd >= end){
+                        end = upperStart;
+                        changed = true;
+                    }
+                }
+            }
+
+            if (start >= end){
+                // fully covered
+                mVisibleLefts[i] = 0;
+                mVisibleRights[i] = 0;
+                continue;
+            }
+
+            // convert distance from the side to coordinates of the card
+            switch (mSide){
+                case Side.LEFT:
+                    mVisibleLefts[i] = start - offset;
+                    mVisibleRights[i] = end - offset;
+                    break;
+                default:
+                    mVisibleLefts[i] = mWidths[i] + offset - end;
+                    mVisibleRights[i] = mWidths[i] + offset - start;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * @return left edge of the visible part in coordinates of the card,
+     *  valid after {@link #computeVisibleSpans()}
+     */
+    public int getVisibleLeft(int index) {
+        return mVisibleLefts[index];
+    }
+
+    /**
+     * @return right edge of the visible part in coordinates of the card,
+     *  valid after {@link #computeVisibleSpans()}
+     */
+    public int getVisibleRight(int index) {
+        return mVisibleRights[index];
+    }
+
+    /**
+     * @return true when the card is fully covered by cards above it,
+     *  valid after {@link #computeVisibleSpans()}
+     */
+    public boolean isCovered(int index) {
+        return mVisibleLefts[index] >= mVisibleRights[index];
+    }
+}
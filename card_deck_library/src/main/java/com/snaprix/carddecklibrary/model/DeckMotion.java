@@ -0,0 +1,420 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * drags and slide animations of the deck without any views:
+ * coalesces finger movement into one move per frame, decides how the released card settles
+ * and steps the animation on frames of {@link FrameClock}
+ *
+ * views follow the model through {@link Callback}, the same model runs headless
+ * in simulations of the benchmark module
+ */
+public class DeckMotion {
+    public interface Callback {
+        /**
+         * card at index is about to reveal its child card
+         */
+        void onRevealing(int index);
+
+        /**
+         * called before every step of a drag or animation
+         *
+         * @param activeIndex - index of the lowest card, which offset could change
+         * @param isFirstStep - true when the deck was settled before this step
+         */
+        void onMotionStep(int activeIndex, boolean isFirstStep);
+
+        /**
+         * offsets of the active card and cards above it were changed
+         *
+         * @return number of cards, which were actually moved
+         */
+        int onOffsetsChanged(int activeIndex);
+
+        /**
+         * slide animation reached its target, the deck is at rest
+         */
+        void onSettled();
+
+        /**
+         * the last call of every frame, all changes of the frame are applied
+         */
+        void onFrameEnd();
+    }
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final float MILLIS_PER_SECOND = 1000f;
+    private static final int NO_INDEX = -1;
+
+    private static final String SECTION_SCROLL = "DeckMotion#onScroll";
+    private static final String SECTION_ANIMATION_FRAME = "DeckMotion#onAnimationFrame";
+
+    private final DeckGeometry mGeometry;
+    private final DeckState mDeckState;
+    private final SlideAnimation mAnimation;
+    private final Callback mCallback;
+
+    // in pixels per second, slower release settles the deck by distance
+    private final float mMinFlingVelocity;
+
+    private FrameClock mFrameClock;
+    private boolean mIsFrameScheduled;
+
+    // drag accumulated since the last frame
+    private int mPendingDragIndex = NO_INDEX;
+    private float mPendingDragX;
+    // time of the oldest touch event, which movement is not applied yet
+    private long mPendingDragTimeNanos;
+
+    private boolean mIsInMotion;
+
+    // card, which follows the finger until release, and the direction of its last move
+    private int mDragIndex = NO_INDEX;
+    private int mDragOpeningDelta;
+
+    // null unless metrics are requested
+    private MotionMetrics mMetrics;
+    // null unless tracing is enabled
+    private Tracer mTracer;
+
+    public DeckMotion(DeckGeometry geometry, DeckState deckState, SlideAnimation animation,
+                      float minFlingVelocity, Callback callback) {
+        mGeometry = geometry;
+        mDeckState = deckState;
+        mAnimation = animation;
+        mMinFlingVelocity = minFlingVelocity;
+        mCallback = callback;
+    }
+
+    /**
+     * should be set before the first drag or animation
+     */
+    public void setFrameClock(FrameClock frameClock) {
+        mFrameClock = frameClock;
+    }
+
+    public FrameClock getFrameClock() {
+        return mFrameClock;
+    }
+
+    /**
+     * @param metrics - receives timings of every gesture and settle animation, null to stop measuring
+     */
+    public void setMetrics(MotionMetrics metrics) {
+        mMetrics = metrics;
+    }
+
+    /**
+     * @param tracer - marks drags and animation frames, null to stop tracing
+     */
+    public void setTracer(Tracer tracer) {
+        mTracer = tracer;
+    }
+
+    public SlideAnimation getAnimation() {
+        return mAnimation;
+    }
+
+    /**
+     * @return true while the deck is dragged or animated
+     */
+    public boolean isInMotion() {
+        return mIsInMotion;
+    }
+
+    /**
+     * @return true when there is no running animation and no drag in progress
+     */
+    public boolean isSettled() {
+        return !mIsInMotion;
+    }
+
+    /**
+     * finds where the deck comes to rest, if the motion ends now: running animation reaches its target,
+     * dragged card settles in the direction it was moved last, and the deepest opened card opens fully
+     *
+     * @param offsets - receives offsets of every card, offsets of the deck itself are not changed
+     */
+    public void getRestingOffsets(int[] offsets) {
+        int cardCount = mGeometry.getCardCount();
+        for (int i = 0; i < cardCount; i++){
+            offsets[i] = mGeometry.getOffset(i);
+        }
+        if (!mIsInMotion) return;
+
+        if (mAnimation.isRunning()){
+            // cards above follow the animated card
+            mGeometry.moveTo(offsets, mAnimation.getActiveIndex(), mAnimation.getTarget());
+        } else if (mDragIndex != NO_INDEX){
+            int index = mDragIndex;
+            int offset = offsets[index];
+            if (mPendingDragIndex == index){
+                offset += mGeometry.toOpeningDelta((int) mPendingDragX);
+            }
+
+            int maxOffset = mGeometry.getMaxOffset(index);
+            boolean nextOpened = (mDragOpeningDelta != 0) ? mDragOpeningDelta > 0 : offset * 2 > maxOffset;
+            mGeometry.moveTo(offsets, index, nextOpened ? maxOffset : 0);
+        }
+
+        // deepest opened card, which is left partly opened, is opened fully when the deck settles
+        for (int i = cardCount - 2; i >= 0; i--){
+            if (offsets[i] != 0){
+                mGeometry.moveTo(offsets, i, mGeometry.getMaxOffset(i));
+                break;
+            }
+        }
+    }
+
+    /**
+     * accumulates movement of the finger, cards are moved once per frame
+     * however many touch events come during the frame
+     *
+     * @param distanceX - positive value, when moving from left to right
+     */
+    public void drag(int activeIndex, float distanceX) {
+        drag(activeIndex, distanceX, mFrameClock.nanoTime());
+    }
+
+    /**
+     * @param eventTimeNanos - time of the touch event in the time base of {@link FrameClock#nanoTime()}
+     */
+    public void drag(int activeIndex, float distanceX, long eventTimeNanos) {
+        if (mPendingDragIndex != NO_INDEX && mPendingDragIndex != activeIndex){
+            flushDrag();
+        }
+
+        cancelAnimation(activeIndex);
+        if (mMetrics != null && !mMetrics.isActive(MotionMetrics.TYPE_GESTURE)){
+            mMetrics.begin(MotionMetrics.TYPE_GESTURE, activeIndex, mFrameClock.nanoTime());
+        }
+
+        if (mPendingDragIndex == NO_INDEX){
+            mPendingDragTimeNanos = eventTimeNanos;
+        }
+        mPendingDragIndex = activeIndex;
+        mPendingDragX += distanceX;
+        scheduleFrame();
+    }
+
+    /**
+     * @param distanceX - movement of the finger, positive value, when moving from left to right
+     * @return part of the movement, which the card at index could follow,
+     *  counting the drag, which is not applied yet
+     */
+    public int getAvailableDrag(int activeIndex, int distanceX) {
+        int maxOffset = mGeometry.getMaxOffset(activeIndex);
+        int pendingDrag = (mPendingDragIndex == activeIndex) ? (int) mPendingDragX : 0;
+        int offset = clamp(mGeometry.getOffset(activeIndex) + mGeometry.toOpeningDelta(pendingDrag), maxOffset);
+
+        int targetOffset = clamp(offset + mGeometry.toOpeningDelta(distanceX), maxOffset);
+        return mGeometry.toOpeningDelta(targetOffset - offset);
+    }
+
+    private static int clamp(int offset, int maxOffset) {
+        return Math.max(0, Math.min(offset, maxOffset));
+    }
+
+    /**
+     * finger is released, the card settles opened or closed
+     *
+     * @param distanceX - distance of the whole gesture, positive value, when moving from left to right
+     * @param velocityX - velocity of the finger in pixels per second
+     */
+    public void release(int activeIndex, float distanceX, float velocityX) {
+        // the last movement should be applied before the deck settles
+        flushDrag();
+        mPendingDragX = 0;
+        if (mMetrics != null){
+            mMetrics.end(mFrameClock.nanoTime(), false);
+        }
+
+        float openingVelocity = mGeometry.toOpeningVelocity(velocityX);
+
+        // fling decides by its direction, slow release by the distance
+        boolean nextOpened;
+        if (Math.abs(velocityX) >= mMinFlingVelocity){
+            nextOpened = (openingVelocity > 0);
+        } else {
+            nextOpened = (mGeometry.toOpeningDelta((int) distanceX) > 0);
+        }
+        settle(activeIndex, nextOpened, openingVelocity / MILLIS_PER_SECOND);
+    }
+
+    /**
+     * @param velocity - velocity of the card in pixels per millisecond,
+     *                 positive value when card is opening
+     */
+    public void settle(int index, boolean nextOpened, float velocity) {
+        if (mMetrics != null && !mMetrics.isActive(MotionMetrics.TYPE_SETTLE)){
+            // switching state in the middle of a gesture ends the gesture
+            mMetrics.end(mFrameClock.nanoTime(), true);
+            mMetrics.begin(MotionMetrics.TYPE_SETTLE, index, mFrameClock.nanoTime());
+        }
+        // the deck settles, until the finger moves it again
+        mDragIndex = NO_INDEX;
+        if (nextOpened){
+            mCallback.onRevealing(index);
+        }
+        onMotionStep(index);
+
+        int targetOffset = nextOpened ? mGeometry.getMaxOffset(index) : 0;
+
+        // retargets running animation of the same card, another card is not left in the middle
+        finishAnimation(index);
+        mAnimation.animateTo(index, mGeometry.getOffset(index), velocity, targetOffset,
+                mFrameClock.nanoTime() / NANOS_PER_MILLI);
+        scheduleFrame();
+    }
+
+    /**
+     * user grabbed the deck, animation of the dragged card stops where it is
+     */
+    private void cancelAnimation(int activeIndex) {
+        if (mAnimation.isRunning()){
+            finishAnimation(activeIndex);
+            mAnimation.cancel();
+            unscheduleFrame();
+
+            if (mMetrics != null){
+                mMetrics.end(mFrameClock.nanoTime(), true);
+            }
+        }
+    }
+
+    /**
+     * puts card, which is animated, at its target at once, unless it is the card at index
+     */
+    private void finishAnimation(int index) {
+        if (!mAnimation.isRunning() || mAnimation.getActiveIndex() == index) return;
+
+        int animatedIndex = mAnimation.getActiveIndex();
+        mAnimation.cancel();
+        mGeometry.moveTo(animatedIndex, mAnimation.getTarget());
+        onOffsetsChanged(animatedIndex);
+        mDeckState.onMoved(animatedIndex, DeckState.SETTLING);
+    }
+
+    private final FrameClock.FrameCallback mFrameCallback = new FrameClock.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            mIsFrameScheduled = false;
+            if (mMetrics != null){
+                mMetrics.onFrame(frameTimeNanos);
+            }
+            flushDrag();
+
+            Tracer tracer = mTracer;
+            if (tracer == null || !mAnimation.isRunning()){
+                onAnimationFrame(frameTimeNanos);
+            } else {
+                tracer.beginSection(SECTION_ANIMATION_FRAME);
+                onAnimationFrame(frameTimeNanos);
+                tracer.endSection();
+            }
+            mCallback.onFrameEnd();
+        }
+    };
+
+    private void scheduleFrame() {
+        if (!mIsFrameScheduled){
+            mIsFrameScheduled = true;
+            mFrameClock.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    private void unscheduleFrame() {
+        if (mIsFrameScheduled){
+            mIsFrameScheduled = false;
+            mFrameClock.removeFrameCallback(mFrameCallback);
+        }
+    }
+
+    private void flushDrag() {
+        if (mPendingDragIndex == NO_INDEX) return;
+
+        int activeIndex = mPendingDragIndex;
+        mPendingDragIndex = NO_INDEX;
+
+        // keep fraction of a pixel for the next frame, so slow drags do not lose movement
+        int delta = (int) mPendingDragX;
+        mPendingDragX -= delta;
+        if (delta == 0) return;
+
+        if (mMetrics == null){
+            onScroll(activeIndex, delta);
+        } else {
+            long start = mFrameClock.nanoTime();
+            onScroll(activeIndex, delta);
+            long end = mFrameClock.nanoTime();
+            mMetrics.onScroll(end - start);
+            mMetrics.onInputApplied(end - mPendingDragTimeNanos);
+        }
+    }
+
+    private void onScroll(int activeIndex, int delta) {
+        Tracer tracer = mTracer;
+        if (tracer != null) tracer.beginSection(SECTION_SCROLL);
+
+        if (mGeometry.toOpeningDelta(delta) > 0){
+            mCallback.onRevealing(activeIndex);
+        }
+
+        onMotionStep(activeIndex);
+        mGeometry.drag(activeIndex, delta);
+        onOffsetsChanged(activeIndex);
+
+        mDragIndex = activeIndex;
+        mDragOpeningDelta = mGeometry.toOpeningDelta(delta);
+
+        mDeckState.onMoved(activeIndex, DeckState.DRAGGING);
+
+        if (tracer != null) tracer.endSection();
+    }
+
+    /**
+     * moves the card to the position of the animation at the time of the frame,
+     * so animation runs at display refresh rate and does not depend on timer jitter
+     */
+    private void onAnimationFrame(long frameTimeNanos) {
+        if (!mAnimation.isRunning()) return;
+
+        boolean isRunning = mAnimation.step(frameTimeNanos / NANOS_PER_MILLI);
+
+        int index = mAnimation.getActiveIndex();
+        mGeometry.moveTo(index, Math.round(mAnimation.getPosition()));
+        onOffsetsChanged(index);
+
+        mDeckState.onMoved(index, DeckState.SETTLING);
+        if (isRunning){
+            scheduleFrame();
+            return;
+        }
+
+        // upper card could be left in the middle by moves of the lower card, open it fully
+        int deepestIndex = mDeckState.getDeepestOpenedIndex();
+        if (deepestIndex >= 0 && mGeometry.getOffset(deepestIndex) != mGeometry.getMaxOffset(deepestIndex)){
+            settle(deepestIndex, true, 0);
+        } else {
+            mIsInMotion = false;
+            mDeckState.onSettled();
+            mCallback.onSettled();
+
+            if (mMetrics != null){
+                mMetrics.end(frameTimeNanos, false);
+            }
+        }
+    }
+
+    private void onOffsetsChanged(int activeIndex) {
+        int movedCount = mCallback.onOffsetsChanged(activeIndex);
+        if (mMetrics != null){
+            mMetrics.onCardsMoved(movedCount);
+        }
+    }
+
+    private void onMotionStep(int activeIndex) {
+        boolean isFirstStep = !mIsInMotion;
+        mIsInMotion = true;
+        mCallback.onMotionStep(activeIndex, isFirstStep);
+    }
+}
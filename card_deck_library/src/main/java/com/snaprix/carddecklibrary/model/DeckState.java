@@ -0,0 +1,132 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * state of every card in the deck, kept up to date from the offsets of {@link DeckGeometry},
+ * so routing a gesture to the deepest opened card does not scan the deck
+ */
+public class DeckState {
+    public static final int CLOSED = 0;
+    /**
+     * card is moved by the finger
+     */
+    public static final int DRAGGING = 1;
+    /**
+     * card is moved by the slide animation
+     */
+    public static final int SETTLING = 2;
+    /**
+     * card is at rest and reveals card below it at least partially
+     */
+    public static final int OPENED = 3;
+
+    private static final int NO_INDEX = -1;
+
+    private final DeckGeometry mGeometry;
+    private final int mCardCount;
+
+    private final int[] mStates;
+    private final boolean[] mChanged;
+
+    /**
+     * for every card, index of the deepest card reached by walking down opened cards from it
+     */
+    private final int[] mNextIndexes;
+    private int mDeepestOpenedIndex = NO_INDEX;
+
+    public DeckState(DeckGeometry geometry) {
+        mGeometry = geometry;
+        mCardCount = geometry.getCardCount();
+
+        mStates = new int[mCardCount];
+        mChanged = new boolean[mCardCount];
+        mNextIndexes = new int[mCardCount];
+        for (int i = 0; i < mCardCount; i++){
+            mNextIndexes[i] = i;
+        }
+    }
+
+    public int getState(int index) {
+        return mStates[index];
+    }
+
+    /**
+     * @return the deepest opened card starting from the card at index, or index itself
+     */
+    public int getNextIndex(int index) {
+        return mNextIndexes[index];
+    }
+
+    /**
+     * @return index of the deepest card with non zero offset, or -1 when the deck is closed
+     */
+    public int getDeepestOpenedIndex() {
+        return mDeepestOpenedIndex;
+    }
+
+    /**
+     * @return true when state of the card changed since the last {@link #clearChanges()}
+     */
+    public boolean isChanged(int index) {
+        return mChanged[index];
+    }
+
+    public void clearChanges() {
+        for (int i = 0; i < mCardCount; i++){
+            mChanged[i] = false;
+        }
+    }
+
+    /**
+     * offsets of the active card and cards above it were changed by motion
+     *
+     * @param motionState - {@link #DRAGGING} or {@link #SETTLING}
+     */
+    public void onMoved(int activeIndex, int motionState) {
+        for (int i = activeIndex; i >= 0; i--){
+            setState(i, motionState);
+        }
+        updateIndexes(activeIndex);
+    }
+
+    /**
+     * the deck is at rest, all cards are either opened or closed
+     */
+    public void onSettled() {
+        for (int i = 0; i < mCardCount; i++){
+            setState(i, mGeometry.isOpened(i) ? OPENED : CLOSED);
+        }
+        updateIndexes(mCardCount - 1);
+    }
+
+    private void setState(int index, int state) {
+        if (mStates[index] != state){
+            mStates[index] = state;
+            mChanged[index] = true;
+        }
+    }
+
+    /**
+     * only cards up to changedIndex have new offsets,
+     * walking down from deeper cards gives the same result as before
+     */
+    private void updateIndexes(int changedIndex) {
+        int lastIndex = mCardCount - 1;
+        for (int i = Math.min(changedIndex, lastIndex - 1); i >= 0; i--){
+            mNextIndexes[i] = mGeometry.isOpened(i + 1) ? mNextIndexes[i + 1] : i;
+        }
+
+        if (mDeepestOpenedIndex > changedIndex){
+            // deeper cards did not move
+            return;
+        }
+
+        int deepest = NO_INDEX;
+        for (int i = changedIndex; i >= 0; i--){
+            if (mGeometry.isOpened(i)){
+                deepest = i;
+                break;
+            }
+        }
+        mDeepestOpenedIndex = deepest;
+    }
+}
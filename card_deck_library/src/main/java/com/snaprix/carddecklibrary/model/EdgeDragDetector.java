@@ -0,0 +1,95 @@
+package com.snaprix.carddecklibrary.model;
+
+import com.snaprix.carddecklibrary.views.Side;
+
+/**
+ * decides whether a gesture is a horizontal drag started at the edge of the card,
+ * works on primitives only and allocates nothing per event
+ *
+ * gesture started outside of the edge region is rejected on down,
+ * and all its later events are ignored
+ */
+public class EdgeDragDetector {
+    public static final int STATE_IDLE = 0;
+    /**
+     * gesture started in the edge region, but has not moved beyond touch slop yet
+     */
+    public static final int STATE_POSSIBLE = 1;
+    public static final int STATE_DRAGGING = 2;
+    public static final int STATE_REJECTED = 3;
+
+    private int mSide;
+    private int mTouchRegionWidth;
+    private int mTouchSlop;
+
+    private int mState = STATE_IDLE;
+    private float mDownX;
+    private float mDownY;
+
+    /**
+     * @param side - one of {@link Side} values, edge of the card where drag could start
+     * @param touchRegionWidth - width of the edge region in pixels
+     * @param touchSlop - distance in pixels finger should move before it is treated as a drag
+     */
+    public EdgeDragDetector(int side, int touchRegionWidth, int touchSlop) {
+        mSide = side;
+        mTouchRegionWidth = touchRegionWidth;
+        mTouchSlop = touchSlop;
+    }
+
+    public void setSide(int side) {
+        mSide = side;
+    }
+
+    public int getState() {
+        return mState;
+    }
+
+    public boolean isDragging() {
+        return mState == STATE_DRAGGING;
+    }
+
+    public boolean isRejected() {
+        return mState == STATE_REJECTED;
+    }
+
+    /**
+     * @param x - position of the finger in coordinates of the card
+     * @param width - width of the card
+     */
+    public void onDown(float x, float y, int width) {
+        mDownX = x;
+        mDownY = y;
+
+        boolean startedInTouchRegion;
+        switch (mSide){
+            case Side.LEFT:
+                startedInTouchRegion = (x < mTouchRegionWidth);
+                break;
+            default:
+                startedInTouchRegion = ((width - x) < mTouchRegionWidth);
+                break;
+        }
+        mState = startedInTouchRegion ? STATE_POSSIBLE : STATE_REJECTED;
+    }
+
+    /**
+     * @return true when gesture is a horizontal drag
+     */
+    public boolean onMove(float x, float y) {
+        if (mState == STATE_POSSIBLE){
+            float absDeltaX = Math.abs(x - mDownX);
+            float absDeltaY = Math.abs(y - mDownY);
+
+            if (absDeltaX > mTouchSlop || absDeltaY > mTouchSlop){
+                // the first move beyond slop decides the direction of the whole gesture
+                mState = (absDeltaX > absDeltaY) ? STATE_DRAGGING : STATE_REJECTED;
+            }
+        }
+        return mState == STATE_DRAGGING;
+    }
+
+    public void reset() {
+        mState = STATE_IDLE;
+    }
+}
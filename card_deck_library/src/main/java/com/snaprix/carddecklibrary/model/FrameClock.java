@@ -0,0 +1,26 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * source of animation frames, on device it is tied to display refresh,
+ * in tests and simulations it could be stepped manually
+ */
+public interface FrameClock {
+    interface FrameCallback {
+        /**
+         * @param frameTimeNanos - time of the frame, in the same time base as {@link #nanoTime()}
+         */
+        void doFrame(long frameTimeNanos);
+    }
+
+    /**
+     * @return current time in nanoseconds
+     */
+    long nanoTime();
+
+    /**
+     * callback is called once, on the next frame
+     */
+    void postFrameCallback(FrameCallback callback);
+
+    void removeFrameCallback(FrameCallback callback);
+}
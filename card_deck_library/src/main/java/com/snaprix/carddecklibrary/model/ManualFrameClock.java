@@ -0,0 +1,122 @@
+package com.snaprix.carddecklibrary.model;
+
+import java.util.ArrayList;
+
+/**
+ * frame clock, which time is moved by the caller, frames come at fixed interval
+ * as they come from 60 Hz display, so replays and simulations are deterministic
+ * and run as fast as the processor allows
+ */
+public class ManualFrameClock implements FrameClock {
+    public static final long FRAME_INTERVAL_NANOS = 16666667L;
+
+    private final long mFrameIntervalNanos;
+    private long mNanoTime;
+
+    private ArrayList<FrameCallback> mCallbacks = new ArrayList<>();
+    // callbacks of the frame being dispatched, swapped with mCallbacks to avoid allocations
+    private ArrayList<FrameCallback> mDispatchedCallbacks = new ArrayList<>();
+
+    private long mFrameCount;
+
+    public ManualFrameClock() {
+        this(0, FRAME_INTERVAL_NANOS);
+    }
+
+    /**
+     * @param startNanoTime - initial time
+     * @param frameIntervalNanos - time between frames
+     */
+    public ManualFrameClock(long startNanoTime, long frameIntervalNanos) {
+        if (frameIntervalNanos <= 0) throw new IllegalArgumentException("frame interval should be positive");
+
+        mNanoTime = startNanoTime;
+        mFrameIntervalNanos = frameIntervalNanos;
+    }
+
+    @Override
+    public long nanoTime() {
+        return mNanoTime;
+    }
+
+    @Override
+    public void postFrameCallback(FrameCallback callback) {
+        mCallbacks.add(callback);
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCallback callback) {
+        mCallbacks.remove(callback);
+    }
+
+    public boolean hasPendingFrame() {
+        return !mCallbacks.isEmpty();
+    }
+
+    /**
+     * @return number of frames dispatched since the clock was created
+     */
+    public long getFrameCount() {
+        return mFrameCount;
+    }
+
+    /**
+     * moves time to the next frame and dispatches it
+     */
+    public void runFrame() {
+        mNanoTime = getNextFrameTime();
+        dispatchFrame();
+    }
+
+    /**
+     * moves time forward, dispatching every frame on the way
+     */
+    public void advanceTo(long nanoTime) {
+        long nextFrameTime = getNextFrameTime();
+        while (nextFrameTime <= nanoTime){
+            mNanoTime = nextFrameTime;
+            dispatchFrame();
+            nextFrameTime = getNextFrameTime();
+        }
+        if (nanoTime > mNanoTime){
+            mNanoTime = nanoTime;
+        }
+    }
+
+    public void advanceBy(long nanos) {
+        advanceTo(mNanoTime + nanos);
+    }
+
+    /**
+     * runs frames while something is posted to them
+     *
+     * @return false when callbacks are still posted after maxFrames
+     */
+    public boolean runUntilIdle(int maxFrames) {
+        for (int i = 0; i < maxFrames && hasPendingFrame(); i++){
+            runFrame();
+        }
+        return !hasPendingFrame();
+    }
+
+    /**
+     * @return time of the next vsync, frames are aligned to multiples of the interval
+     */
+    public long getNextFrameTime() {
+        return (mNanoTime / mFrameIntervalNanos + 1) * mFrameIntervalNanos;
+    }
+
+    private void dispatchFrame() {
+        mFrameCount++;
+
+        // callbacks posted during the frame go to the next one
+        ArrayList<FrameCallback> callbacks = mCallbacks;
+        mCallbacks = mDispatchedCallbacks;
+        mDispatchedCallbacks = callbacks;
+
+        for (int i = 0; i < callbacks.size(); i++){
+            callbacks.get(i).doFrame(mNanoTime);
+        }
+        callbacks.clear();
+    }
+}
@@ -0,0 +1,182 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * timings of one motion of the deck: a gesture from the first move to the release,
+ * or a settle animation from its start to the rest
+ *
+ * one instance is reused for all motions, so nothing is allocated per frame or per motion,
+ * {@link Sink} should copy values it needs before it returns
+ */
+public class MotionMetrics {
+    public static final int TYPE_GESTURE = 0;
+    public static final int TYPE_SETTLE = 1;
+
+    public static final long DEFAULT_FRAME_BUDGET_NANOS = 16666667L;
+
+    public interface Sink {
+        /**
+         * called when motion ends, metrics are valid only during the call
+         */
+        void onMotionMetrics(MotionMetrics metrics);
+    }
+
+    private final Sink mSink;
+    private long mFrameBudgetNanos = DEFAULT_FRAME_BUDGET_NANOS;
+
+    private boolean mIsActive;
+    private long mLastFrameNanos;
+
+    private int mType;
+    private int mCardIndex;
+    private boolean mIsCancelled;
+    private long mStartNanos;
+    private long mDurationNanos;
+    private int mFrameCount;
+    private int mFramesOverBudget;
+    private int mInputCount;
+    private long mTotalLatencyNanos;
+    private long mMaxLatencyNanos;
+    private long mScrollTimeNanos;
+    private int mCardsMoved;
+
+    public MotionMetrics(Sink sink) {
+        mSink = sink;
+    }
+
+    /**
+     * @param frameBudgetNanos - time between frames of the display, frame is over budget,
+     *                         when it comes later than one and a half of this time after the previous one
+     */
+    public void setFrameBudgetNanos(long frameBudgetNanos) {
+        mFrameBudgetNanos = frameBudgetNanos;
+    }
+
+    public boolean isActive() {
+        return mIsActive;
+    }
+
+    public boolean isActive(int type) {
+        return mIsActive && mType == type;
+    }
+
+    public void begin(int type, int cardIndex, long nowNanos) {
+        mIsActive = true;
+        mType = type;
+        mCardIndex = cardIndex;
+        mIsCancelled = false;
+        mStartNanos = nowNanos;
+        mDurationNanos = 0;
+        mLastFrameNanos = 0;
+        mFrameCount = 0;
+        mFramesOverBudget = 0;
+        mInputCount = 0;
+        mTotalLatencyNanos = 0;
+        mMaxLatencyNanos = 0;
+        mScrollTimeNanos = 0;
+        mCardsMoved = 0;
+    }
+
+    public void onFrame(long frameTimeNanos) {
+        if (!mIsActive) return;
+
+        if (mLastFrameNanos != 0 && (frameTimeNanos - mLastFrameNanos) * 2 > mFrameBudgetNanos * 3){
+            mFramesOverBudget++;
+        }
+        mLastFrameNanos = frameTimeNanos;
+        mFrameCount++;
+    }
+
+    /**
+     * @param latencyNanos - time from the touch event to the moment its movement reached the cards
+     */
+    public void onInputApplied(long latencyNanos) {
+        if (!mIsActive) return;
+
+        mInputCount++;
+        mTotalLatencyNanos += latencyNanos;
+        if (latencyNanos > mMaxLatencyNanos){
+            mMaxLatencyNanos = latencyNanos;
+        }
+    }
+
+    public void onScroll(long scrollTimeNanos) {
+        if (!mIsActive) return;
+        mScrollTimeNanos += scrollTimeNanos;
+    }
+
+    public void onCardsMoved(int cardsMoved) {
+        if (!mIsActive) return;
+        mCardsMoved += cardsMoved;
+    }
+
+    /**
+     * @param isCancelled - true when motion was interrupted, for example animation was grabbed by the finger
+     */
+    public void end(long nowNanos, boolean isCancelled) {
+        if (!mIsActive) return;
+
+        mIsActive = false;
+        mIsCancelled = isCancelled;
+        mDurationNanos = nowNanos - mStartNanos;
+        mSink.onMotionMetrics(this);
+    }
+
+    /**
+     * @return {@link #TYPE_GESTURE} or {@link #TYPE_SETTLE}
+     */
+    public int getType() {
+        return mType;
+    }
+
+    /**
+     * @return index of the card, which was dragged or animated first
+     */
+    public int getCardIndex() {
+        return mCardIndex;
+    }
+
+    public boolean isCancelled() {
+        return mIsCancelled;
+    }
+
+    public long getDurationNanos() {
+        return mDurationNanos;
+    }
+
+    public int getFrameCount() {
+        return mFrameCount;
+    }
+
+    public int getFramesOverBudget() {
+        return mFramesOverBudget;
+    }
+
+    /**
+     * @return number of frames, which applied movement of the finger
+     */
+    public int getInputCount() {
+        return mInputCount;
+    }
+
+    public long getMaxLatencyNanos() {
+        return mMaxLatencyNanos;
+    }
+
+    public long getAverageLatencyNanos() {
+        return (mInputCount == 0) ? 0 : mTotalLatencyNanos / mInputCount;
+    }
+
+    /**
+     * @return time spent moving cards by the finger
+     */
+    public long getScrollTimeNanos() {
+        return mScrollTimeNanos;
+    }
+
+    /**
+     * @return number of card moves, a card moved on 10 frames counts 10 times
+     */
+    public int getCardsMoved() {
+        return mCardsMoved;
+    }
+}
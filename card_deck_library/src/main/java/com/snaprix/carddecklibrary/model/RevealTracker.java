@@ -0,0 +1,78 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * reveal progress of every card in the deck, from 0 when the card is covered by its parent
+ * to 1 when the parent is fully opened, the base card is always revealed
+ *
+ * progress is sampled by {@link #update()} once per frame, so changes are published
+ * in batches however many touch events moved the cards during the frame
+ */
+public class RevealTracker {
+    private final DeckGeometry mGeometry;
+    private final int mCardCount;
+
+    private final float[] mProgress;
+    private final float[] mPreviousProgress;
+
+    public RevealTracker(DeckGeometry geometry) {
+        mGeometry = geometry;
+        mCardCount = geometry.getCardCount();
+
+        mProgress = new float[mCardCount];
+        mPreviousProgress = new float[mCardCount];
+        for (int i = 0; i < mCardCount; i++){
+            mProgress[i] = mPreviousProgress[i] = computeProgress(i);
+        }
+    }
+
+    /**
+     * @return progress of the card at index, computed from the current offsets
+     */
+    public float computeProgress(int index) {
+        if (index == 0) return 1f;
+
+        int parentIndex = index - 1;
+        int maxOffset = mGeometry.getMaxOffset(parentIndex);
+        if (maxOffset == 0) return 0f;
+        return Math.min(1f, (float) mGeometry.getOffset(parentIndex) / maxOffset);
+    }
+
+    /**
+     * samples progress of all cards, the previous sample is kept for {@link #getCrossing(int, float)}
+     *
+     * @return true when progress of at least one card changed since the previous sample
+     */
+    public boolean update() {
+        boolean changed = false;
+        for (int i = 0; i < mCardCount; i++){
+            mPreviousProgress[i] = mProgress[i];
+            mProgress[i] = computeProgress(i);
+            changed |= (mProgress[i] != mPreviousProgress[i]);
+        }
+        return changed;
+    }
+
+    /**
+     * @return progress of the card at the last {@link #update()}
+     */
+    public float getProgress(int index) {
+        return mProgress[index];
+    }
+
+    public boolean isChanged(int index) {
+        return mProgress[index] != mPreviousProgress[index];
+    }
+
+    /**
+     * @return 1 when the card reached the threshold during the last {@link #update()},
+     *  -1 when it went below the threshold, 0 otherwise
+     */
+    public int getCrossing(int index, float threshold) {
+        float previous = mPreviousProgress[index];
+        float current = mProgress[index];
+
+        if (previous < threshold && current >= threshold) return 1;
+        if (previous >= threshold && current < threshold) return -1;
+        return 0;
+    }
+}
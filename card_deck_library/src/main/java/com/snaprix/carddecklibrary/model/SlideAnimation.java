@@ -0,0 +1,182 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * the only slide animation of the deck, moves offset of the active card to the target
+ *
+ * length of the animation depends on the remaining distance and velocity:
+ * the card released fast enough towards the target flies with friction and stops
+ * as soon as it reaches it, so a fast fling takes only a few frames,
+ * otherwise the card settles as a critically damped spring
+ *
+ * animation could be retargeted while running, spring continues from the current
+ * position and velocity, so the card does not jump or stop abruptly
+ */
+public class SlideAnimation {
+    /**
+     * the card at rest settles to 1/1000 of the distance in about settle duration
+     */
+    private static final float SETTLE_DAMPING = 9f;
+    // distance in pixels and velocity in pixels per millisecond, below which the card is at rest
+    private static final float REST_DISTANCE = 0.5f;
+    private static final float REST_VELOCITY = 0.01f;
+    // velocity of the flying card decays as e^(-FRICTION * t), t in milliseconds
+    private static final float FRICTION = 0.004f;
+
+    private boolean mIsRunning;
+    private int mActiveIndex = -1;
+
+    // angular frequency of the spring, per millisecond
+    private float mOmega;
+    private long mSettleDuration;
+
+    // true when the card flies to the target, false when it is pulled by the spring
+    private boolean mIsFling;
+
+    // current segment, velocity in pixels per millisecond
+    private long mStartTime;
+    private float mStartPosition;
+    private float mStartVelocity;
+    private float mTarget;
+
+    private float mPosition;
+    private float mVelocity;
+
+    public SlideAnimation(long settleDuration) {
+        setSettleDuration(settleDuration);
+    }
+
+    /**
+     * @param settleDuration - approximate duration in milliseconds of the slide, which starts at rest
+     */
+    public void setSettleDuration(long settleDuration) {
+        mSettleDuration = Math.max(1, settleDuration);
+        mOmega = SETTLE_DAMPING / mSettleDuration;
+    }
+
+    /**
+     * starts animation, or retargets the running one
+     *
+     * @param activeIndex - index of the card, which offset is animated
+     * @param offset - current offset of the card, ignored when the same card is already animated
+     * @param velocity - velocity of the card in pixels per millisecond,
+     *                 ignored when the same card is already animated
+     * @param target - offset at which animation ends
+     * @param now - time in milliseconds
+     */
+    public void animateTo(int activeIndex, int offset, float velocity, int target, long now) {
+        boolean isRetarget = mIsRunning && activeIndex == mActiveIndex;
+        if (!isRetarget){
+            mPosition = offset;
+            mVelocity = velocity;
+        }
+
+        mIsRunning = true;
+        mActiveIndex = activeIndex;
+
+        mStartTime = now;
+        mStartPosition = mPosition;
+        mStartVelocity = mVelocity;
+        mTarget = target;
+
+        // fly only when friction lets the card reach the target faster than the spring would settle
+        float distance = mTarget - mStartPosition;
+        boolean towardsTarget = (distance > 0 && mStartVelocity > 0) || (distance < 0 && mStartVelocity < 0);
+        mIsFling = towardsTarget && getFlingTime(Math.abs(distance), Math.abs(mStartVelocity)) <= mSettleDuration;
+    }
+
+    /**
+     * @return time in milliseconds, which the card needs to fly the distance,
+     *  or infinity when friction stops it earlier
+     */
+    private static float getFlingTime(float distance, float speed) {
+        float ratio = 1 - FRICTION * distance / speed;
+        if (ratio <= 0) return Float.POSITIVE_INFINITY;
+        return (float) (-Math.log(ratio) / FRICTION);
+    }
+
+    public boolean isFling() {
+        return mIsFling;
+    }
+
+    /**
+     * stops animation at the current position
+     */
+    public void cancel() {
+        mIsRunning = false;
+        mVelocity = 0;
+    }
+
+    public boolean isRunning() {
+        return mIsRunning;
+    }
+
+    public int getActiveIndex() {
+        return mActiveIndex;
+    }
+
+    public int getTarget() {
+        return (int) mTarget;
+    }
+
+    public float getPosition() {
+        return mPosition;
+    }
+
+    /**
+     * @return velocity in pixels per millisecond
+     */
+    public float getVelocity() {
+        return mVelocity;
+    }
+
+    /**
+     * moves animation to the time
+     *
+     * @return true while animation is running, false when it reached the target
+     */
+    public boolean step(long now) {
+        if (!mIsRunning) return false;
+
+        float t = Math.max(0, now - mStartTime);
+
+        if (mIsFling){
+            return stepFling(t);
+        }
+
+        // x(t) = target + (a + b * t) * e^(-omega * t)
+        float a = mStartPosition - mTarget;
+        float b = mStartVelocity + mOmega * a;
+        float decay = (float) Math.exp(-mOmega * t);
+
+        float distance = (a + b * t) * decay;
+        mPosition = mTarget + distance;
+        mVelocity = (b - mOmega * (a + b * t)) * decay;
+
+        // the target is always the edge of the card path, the card could not go beyond it
+        boolean passedTarget = (a > 0 && distance <= 0) || (a < 0 && distance >= 0);
+        boolean atRest = Math.abs(distance) < REST_DISTANCE && Math.abs(mVelocity) < REST_VELOCITY;
+        if (passedTarget || atRest){
+            mPosition = mTarget;
+            mVelocity = 0;
+            mIsRunning = false;
+            return false;
+        }
+        return true;
+    }
+
+    private boolean stepFling(float t) {
+        // x(t) = x0 + v0 / friction * (1 - e^(-friction * t))
+        float decay = (float) Math.exp(-FRICTION * t);
+        mPosition = mStartPosition + mStartVelocity / FRICTION * (1 - decay);
+        mVelocity = mStartVelocity * decay;
+
+        boolean reachedTarget = (mStartVelocity > 0) ? (mPosition >= mTarget) : (mPosition <= mTarget);
+        if (reachedTarget){
+            mPosition = mTarget;
+            mVelocity = 0;
+            mIsRunning = false;
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,171 @@
+package com.snaprix.carddecklibrary.model;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * single pointer touch events in screen coordinates, kept in primitive arrays
+ * and stored in compact binary form, so gestures recorded on devices could be replayed
+ *
+ * every event could carry historical samples, which were batched into it
+ *
+ * binary form:
+ *  int magic, short version, int event count, long time of the first event,
+ *  for every event: byte action, int time since the previous event in milliseconds,
+ *  float x, float y, short history size and for every sample: int time since the event, float x, float y
+ */
+public class TouchTrace {
+    private static final int MAGIC = 0x43445454;
+    private static final short VERSION = 1;
+
+    private int mEventCount;
+    private int[] mActions = new int[64];
+    private long[] mTimes = new long[64];
+    private float[] mXs = new float[64];
+    private float[] mYs = new float[64];
+    // index of the first historical sample of the event, samples of event i end where samples of i + 1 start
+    private int[] mHistoryStarts = new int[65];
+
+    private int mSampleCount;
+    private long[] mSampleTimes = new long[64];
+    private float[] mSampleXs = new float[64];
+    private float[] mSampleYs = new float[64];
+
+    /**
+     * historical samples should be added before the event they belong to
+     *
+     * @param action - MotionEvent action
+     * @param time - event time in milliseconds
+     */
+    public void addEvent(int action, long time, float x, float y) {
+        if (mEventCount == mActions.length){
+            int capacity = mEventCount * 2;
+            mActions = Arrays.copyOf(mActions, capacity);
+            mTimes = Arrays.copyOf(mTimes, capacity);
+            mXs = Arrays.copyOf(mXs, capacity);
+            mYs = Arrays.copyOf(mYs, capacity);
+            mHistoryStarts = Arrays.copyOf(mHistoryStarts, capacity + 1);
+        }
+
+        mActions[mEventCount] = action;
+        mTimes[mEventCount] = time;
+        mXs[mEventCount] = x;
+        mYs[mEventCount] = y;
+        mEventCount++;
+        mHistoryStarts[mEventCount] = mSampleCount;
+    }
+
+    /**
+     * adds sample, which is batched into the next added event
+     */
+    public void addHistoricalSample(long time, float x, float y) {
+        if (mSampleCount == mSampleTimes.length){
+            int capacity = mSampleCount * 2;
+            mSampleTimes = Arrays.copyOf(mSampleTimes, capacity);
+            mSampleXs = Arrays.copyOf(mSampleXs, capacity);
+            mSampleYs = Arrays.copyOf(mSampleYs, capacity);
+        }
+
+        mSampleTimes[mSampleCount] = time;
+        mSampleXs[mSampleCount] = x;
+        mSampleYs[mSampleCount] = y;
+        mSampleCount++;
+    }
+
+    public void clear() {
+        mEventCount = 0;
+        mSampleCount = 0;
+    }
+
+    public int getEventCount() {
+        return mEventCount;
+    }
+
+    public int getAction(int event) {
+        return mActions[event];
+    }
+
+    public long getTime(int event) {
+        return mTimes[event];
+    }
+
+    public float getX(int event) {
+        return mXs[event];
+    }
+
+    public float getY(int event) {
+        return mYs[event];
+    }
+
+    public int getHistorySize(int event) {
+        return mHistoryStarts[event + 1] - mHistoryStarts[event];
+    }
+
+    public long getHistoricalTime(int event, int pos) {
+        return mSampleTimes[mHistoryStarts[event] + pos];
+    }
+
+    public float getHistoricalX(int event, int pos) {
+        return mSampleXs[mHistoryStarts[event] + pos];
+    }
+
+    public float getHistoricalY(int event, int pos) {
+        return mSampleYs[mHistoryStarts[event] + pos];
+    }
+
+    public void writeTo(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(os);
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        out.writeInt(mEventCount);
+        long startTime = (mEventCount > 0) ? mTimes[0] : 0;
+        out.writeLong(startTime);
+
+        long previousTime = startTime;
+        for (int i = 0; i < mEventCount; i++){
+            out.writeByte(mActions[i]);
+            out.writeInt((int) (mTimes[i] - previousTime));
+            out.writeFloat(mXs[i]);
+            out.writeFloat(mYs[i]);
+
+            int historySize = getHistorySize(i);
+            out.writeShort(historySize);
+            for (int h = 0; h < historySize; h++){
+                out.writeInt((int) (mTimes[i] - getHistoricalTime(i, h)));
+                out.writeFloat(getHistoricalX(i, h));
+                out.writeFloat(getHistoricalY(i, h));
+            }
+            previousTime = mTimes[i];
+        }
+        out.flush();
+    }
+
+    public static TouchTrace readFrom(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(is);
+        if (in.readInt() != MAGIC) throw new IOException("not a touch trace");
+        short version = in.readShort();
+        if (version != VERSION) throw new IOException("unsupported touch trace version " + version);
+
+        TouchTrace trace = new TouchTrace();
+        int eventCount = in.readInt();
+        long time = in.readLong();
+        for (int i = 0; i < eventCount; i++){
+            int action = in.readByte();
+            time += in.readInt();
+            float x = in.readFloat();
+            float y = in.readFloat();
+
+            int historySize = in.readShort();
+            for (int h = 0; h < historySize; h++){
+                long sampleTime = time - in.readInt();
+                trace.addHistoricalSample(sampleTime, in.readFloat(), in.readFloat());
+            }
+            trace.addEvent(action, time, x, y);
+        }
+        return trace;
+    }
+}
@@ -0,0 +1,15 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * marks named sections of work, on device they go to systrace,
+ * so cost of the deck could be seen in a profiler
+ */
+public interface Tracer {
+    /**
+     * sections could be nested, every begin should be paired with {@link #endSection()}
+     * on the same thread
+     */
+    void beginSection(String name);
+
+    void endSection();
+}
@@ -0,0 +1,65 @@
+package com.snaprix.carddecklibrary.model;
+
+/**
+ * estimates velocity of a finger from the latest samples,
+ * keeps them in a fixed ring buffer and allocates nothing per sample
+ */
+public class VelocityEstimator {
+    private static final int SAMPLE_COUNT = 16;
+    // samples older than this are not used, finger could stop before release
+    private static final long HORIZON = 100;
+
+    private final long[] mTimes = new long[SAMPLE_COUNT];
+    private final float[] mPositions = new float[SAMPLE_COUNT];
+
+    private int mHead;
+    private int mSize;
+
+    public void clear() {
+        mHead = 0;
+        mSize = 0;
+    }
+
+    /**
+     * @param time - time of the sample in milliseconds
+     * @param position - position of the finger in pixels
+     */
+    public void addSample(long time, float position) {
+        mHead = (mHead + 1) % SAMPLE_COUNT;
+        mTimes[mHead] = time;
+        mPositions[mHead] = position;
+        if (mSize < SAMPLE_COUNT) mSize++;
+    }
+
+    /**
+     * @return velocity in pixels per millisecond, least squares slope of the recent samples
+     */
+    public float getVelocity() {
+        if (mSize < 2) return 0;
+
+        long lastTime = mTimes[mHead];
+
+        int n = 0;
+        float sumT = 0, sumX = 0, sumTT = 0, sumTX = 0;
+        for (int i = 0; i < mSize; i++){
+            int index = (mHead - i + SAMPLE_COUNT) % SAMPLE_COUNT;
+            long age = lastTime - mTimes[index];
+            if (age > HORIZON) break;
+
+            // time relative to the last sample keeps sums small
+            float t = -age;
+            float x = mPositions[index];
+            sumT += t;
+            sumX += x;
+            sumTT += t * t;
+            sumTX += t * x;
+            n++;
+        }
+
+        if (n < 2) return 0;
+
+        float denominator = n * sumTT - sumT * sumT;
+        if (denominator == 0) return 0;
+        return (n * sumTX - sumT * sumX) / denominator;
+    }
+}
@@ -0,0 +1,29 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.os.Bundle;
+
+/**
+ * creates content of the card on demand, so hidden cards stay empty layers
+ * until user starts to reveal them
+ */
+public interface CardContentFactory {
+    /**
+     * called right before the card starts to be revealed by a drag or
+     * {@link SlideController#switchState(SlideLayer, boolean)},
+     * for the first time or after content was evicted
+     *
+     * @param layer - empty layer of the card, content should be added into it
+     *              (directly or by fragment transaction using layer id)
+     * @param savedState - state saved by {@link #onDestroyCardContent(SlideLayer, Bundle)},
+     *                   null when content is created for the first time
+     */
+    void onCreateCardContent(SlideLayer layer, Bundle savedState);
+
+    /**
+     * called when hidden card is evicted by retention policy of {@link SlideController},
+     * content should be removed from the layer, so its view hierarchy could be released
+     *
+     * @param outState - state to restore content from, on the next reveal
+     */
+    void onDestroyCardContent(SlideLayer layer, Bundle outState);
+}
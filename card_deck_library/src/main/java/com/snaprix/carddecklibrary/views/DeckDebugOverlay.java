@@ -0,0 +1,112 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.view.View;
+
+/**
+ * debug panel drawn over the deck, shows for every card its offset, state
+ * and whether it is drawn fully, clipped to its visible span or hidden,
+ * and time of the last frame and the longest frame of the current motion
+ *
+ * text is built in reused buffers, so the overlay does not allocate while the deck moves
+ */
+class DeckDebugOverlay extends View {
+    private static final String[] STATE_NAMES = {"closed", "dragging", "settling", "opened"};
+    private static final int TEXT_SIZE_DP = 12;
+    private static final float LINE_SPACING = 1.25f;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    // draws further apart are not frames of one motion
+    private static final long IDLE_NANOS = 250 * NANOS_PER_MILLI;
+
+    private final SlideController mController;
+
+    private final Paint mTextPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mBackgroundPaint = new Paint();
+    private final float mLineHeight;
+
+    private final StringBuilder mText = new StringBuilder();
+    private char[] mChars = new char[64];
+
+    private long mLastDrawNanos;
+    private long mFrameNanos;
+    private long mMaxFrameNanos;
+
+    DeckDebugOverlay(Context context, SlideController controller) {
+        super(context);
+        mController = controller;
+
+        float textSize = TEXT_SIZE_DP * getResources().getDisplayMetrics().density;
+        mTextPaint.setColor(Color.WHITE);
+        mTextPaint.setTextSize(textSize);
+        mBackgroundPaint.setColor(0xa0000000);
+        mLineHeight = textSize * LINE_SPACING;
+    }
+
+    /**
+     * deck starts new motion, the longest frame is counted from now
+     */
+    void onMotionStarted() {
+        mMaxFrameNanos = 0;
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        long now = System.nanoTime();
+        long sinceLastDraw = now - mLastDrawNanos;
+        if (mLastDrawNanos != 0 && sinceLastDraw < IDLE_NANOS){
+            mFrameNanos = sinceLastDraw;
+            mMaxFrameNanos = Math.max(mMaxFrameNanos, sinceLastDraw);
+        }
+        mLastDrawNanos = now;
+
+        int cardCount = mController.getCardCount();
+        canvas.drawRect(0, 0, getWidth(), mLineHeight * (cardCount + 1.5f), mBackgroundPaint);
+
+        float y = mLineHeight;
+        mText.setLength(0);
+        mText.append("frame ");
+        appendMillis(mFrameNanos);
+        mText.append(" ms, max ");
+        appendMillis(mMaxFrameNanos);
+        mText.append(" ms");
+        drawLine(canvas, y);
+
+        for (int i = 0; i < cardCount; i++){
+            y += mLineHeight;
+
+            SlideLayer layer = mController.getLayer(i + 1);
+            View container = (View) layer.getParent();
+
+            mText.setLength(0);
+            mText.append('#').append(i + 1)
+                    .append(" offset ").append(mController.getOffset(layer))
+                    .append(' ').append(STATE_NAMES[mController.getCardState(layer)])
+                    .append(' ');
+            if (container.getVisibility() != View.VISIBLE){
+                mText.append("hidden");
+            } else if (layer.isClipped()){
+                mText.append("clipped");
+            } else {
+                mText.append("drawing");
+            }
+            drawLine(canvas, y);
+        }
+    }
+
+    private void appendMillis(long nanos){
+        long tenths = nanos / (NANOS_PER_MILLI / 10);
+        mText.append(tenths / 10).append('.').append(tenths % 10);
+    }
+
+    private void drawLine(Canvas canvas, float y){
+        int length = mText.length();
+        if (length > mChars.length){
+            mChars = new char[length * 2];
+        }
+        mText.getChars(0, length, mChars, 0);
+        canvas.drawText(mChars, 0, length, mLineHeight / 2, y, mTextPaint);
+    }
+}
@@ -0,0 +1,16 @@
+package com.snaprix.carddecklibrary.views;
+
+/**
+ * the way cards are moved on the screen
+ */
+public class Motion {
+    /**
+     * container of the card is scrolled, its content is redrawn on every frame
+     */
+    public static final int SCROLL = 0;
+    /**
+     * layer of the card is moved by translationX, only its transform changes
+     * and display list is reused, available since HONEYCOMB
+     */
+    public static final int TRANSLATION = 1;
+}
@@ -0,0 +1,14 @@
+package com.snaprix.carddecklibrary.views;
+
+import com.snaprix.carddecklibrary.model.DeckState;
+
+/**
+ * notified when a card changes its state, so there is no need to poll
+ * {@link SlideController#isOpened(SlideLayer)}
+ */
+public interface OnDeckStateChangeListener {
+    /**
+     * @param state - one of {@link DeckState} values
+     */
+    void onCardStateChanged(SlideLayer layer, int state);
+}
@@ -0,0 +1,11 @@
+package com.snaprix.carddecklibrary.views;
+
+/**
+ * notified once per frame about cards, which reveal progress changed during the frame
+ */
+public interface OnRevealListener {
+    /**
+     * @param progress - from 0 when the card is covered by its parent, to 1 when it is fully revealed
+     */
+    void onRevealProgress(SlideLayer layer, float progress);
+}
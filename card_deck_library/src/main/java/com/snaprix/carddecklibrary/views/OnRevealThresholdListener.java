@@ -0,0 +1,13 @@
+package com.snaprix.carddecklibrary.views;
+
+/**
+ * registered by {@link SlideController#addRevealThreshold(SlideLayer, float, OnRevealThresholdListener)},
+ * use it to start loading content of the card during the first pixels of the drag
+ */
+public interface OnRevealThresholdListener {
+    /**
+     * @param threshold - reveal progress, which the card crossed
+     * @param isRevealing - true when the card reached the threshold, false when it went back below it
+     */
+    void onRevealThreshold(SlideLayer layer, float threshold, boolean isRevealing);
+}
@@ -1,24 +1,34 @@
 package com.snaprix.carddecklibrary.views;
 
-import android.animation.ValueAnimator;
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Resources;
 import android.os.Build;
 import android.os.Bundle;
-import android.os.CountDownTimer;
-import android.os.Parcelable;
 import android.util.Log;
-import android.util.SparseArray;
 import android.view.Gravity;
-import android.view.LayoutInflater;
+import android.view.MotionEvent;
 import android.view.View;
+import android.view.ViewConfiguration;
+import android.view.ViewGroup;
+import android.view.ViewTreeObserver;
 import android.widget.FrameLayout;
 import android.widget.LinearLayout;
 
 import com.snaprix.carddecklibrary.CardDeckLibrary;
 import com.snaprix.carddecklibrary.R;
-
-import java.util.HashMap;
+import com.snaprix.carddecklibrary.model.DeckGeometry;
+import com.snaprix.carddecklibrary.model.DeckMotion;
+import com.snaprix.carddecklibrary.model.DeckState;
+import com.snaprix.carddecklibrary.model.FrameClock;
+import com.snaprix.carddecklibrary.model.MotionMetrics;
+import com.snaprix.carddecklibrary.model.RevealTracker;
+import com.snaprix.carddecklibrary.model.SlideAnimation;
+import com.snaprix.carddecklibrary.model.Tracer;
+
+import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Created by vladimirryabchikov on 10/4/13.
@@ -35,97 +45,399 @@ public class SlideController extends LinearLayout{
      */
     public static int BUILD_MAP_AS_TEXTURE_VIEW = Build.VERSION_CODES.JELLY_BEAN;
     private static final int SLIDE_DURATION = 333;
+    private static final int MAX_HIDDEN_CARDS_UNLIMITED = Integer.MAX_VALUE;
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final float NANOS_PER_SECOND = 1e9f;
 
-    // keys for saving/restoring instance state
-    private final static String KEY_MENUSHOWN = "menuWasShown";
-    private final static String KEY_SUPERSTATE = "superState";
-
-    // this tells whether the menu is currently shown
-    private boolean menuIsShown = false;
-    // this just tells whether the menu was ever shown
-    private boolean menuWasShown = false;
+    private static final String SECTION_MATERIALIZE = "SlideController#materializeChild";
 
-    private int mCollapsedWidth;
+    // keys for saving/restoring instance state
+    private final static String KEY_DECK_STATE = "slideControllerState";
+    private final static String KEY_OFFSETS = "offsets";
+    private final static String KEY_CARD_CONTENT_STATE = "cardContentState";
 
     /**
      * Slide in/out duration in milliseconds.
      */
     private int mSlideDuration;
 
-    private SparseArray<SlideLayer> mLayers;
-    private HashMap<SlideLayer, View> mLayerToContainer;
-    private HashMap<SlideLayer, SlideLayer> mLayerToChild;
+    /**
+     * card with index i has layer number i + 1, its child card is at index i + 1
+     */
+    private Card[] mCards;
+
+    private DeckGeometry mGeometry;
+    private DeckState mDeckState;
+    private OnDeckStateChangeListener mOnDeckStateChangeListener;
+
+    private RevealTracker mRevealTracker;
+    private OnRevealListener mOnRevealListener;
+    private final ArrayList<RevealThreshold> mRevealThresholds = new ArrayList<>();
+
+    private DeckMotion mDeckMotion;
+    // set by builder, or created on install
+    private FrameClock mFrameClock;
 
-    private int mCurrentScrollX;
+    /**
+     * max number of hidden cards, which keep their content, the rest is evicted
+     */
+    private int mMaxHiddenCards;
+    // incremented on every reveal, orders cards from least to most recently revealed
+    private long mRevealCounter;
 
     private int mSide;
 
+    /**
+     * one of {@link Motion} values
+     */
+    private int mMotion;
+
+    /**
+     * cards are clipped to their visible parts while the deck is settled
+     */
+    private boolean mIsOverdrawClippingEnabled;
+    // layout passes of all cards, when the deck started to move
+    private int mLayoutCountAtMotionStart;
+
     private SlideLayer mBaseLayer;
     private SlideLayer mChildLayer;
 
+    /**
+     * views of the deck are created by {@link #install()}, either in constructor,
+     * or right after the first frame of the activity
+     */
+    private final Activity mActivity;
+    private final ArrayList<CardSpec> mCardSpecs;
+    private final boolean mHardwareLayersEnabled;
+    private final boolean mIsDeferredInstall;
+    private boolean mIsInstalled;
+    /**
+     * activity content, which stays in its window as the base card, see {@link Builder#setDeferredInstall(boolean)},
+     * null when it is moved into the base layer
+     */
+    private View mBaseContent;
+    // edge strip, which installs the deck on the first touch, null once it is removed
+    private InstallTrigger mInstallTrigger;
+    // restored before views of the deck are installed
+    private Bundle mPendingState;
+
+    // null unless tracing is enabled
+    private Tracer mTracer;
+    private boolean mIsDebugOverlayEnabled;
+    // created on install, when debug overlay is enabled
+    private DeckDebugOverlay mDebugOverlay;
+
+    /**
+     * default deck of three cards: activity content, menu and sub menu
+     */
     public SlideController(Activity act, int side) {
-        super(act);
+        this(createDefaultDeck(act, side));
+    }
+
+    private static Builder createDefaultDeck(Activity act, int side){
+        Resources res = act.getResources();
+        int collapsedWidth = res.getDimensionPixelSize(R.dimen.menu_width_collapsed);
+
+        return new Builder(act, side)
+                .addCard(R.id.card_2_layer, res.getDimensionPixelSize(R.dimen.menu_width), collapsedWidth)
+                .addCard(R.id.card_3_layer, res.getDimensionPixelSize(R.dimen.sub_menu_width), collapsedWidth);
+    }
+
+    private SlideController(Builder builder) {
+        super(builder.mActivity);
 
+        Activity act = builder.mActivity;
+        int side = builder.mSide;
         mSide = side;
+        mActivity = act;
+        mCardSpecs = new ArrayList<>(builder.mCardSpecs);
+        mHardwareLayersEnabled = builder.mHardwareLayersEnabled;
+        mIsDeferredInstall = builder.mDeferredInstall;
+        mFrameClock = builder.mFrameClock;
+
+        mSlideDuration = builder.mSlideDuration;
+        mMaxHiddenCards = builder.mMaxHiddenCards;
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB){
+            // there are no render properties before HONEYCOMB
+            mMotion = Motion.SCROLL;
+        } else {
+            mMotion = builder.mMotion;
+        }
+        mIsOverdrawClippingEnabled = builder.mOverdrawClippingEnabled;
+
+        int cardCount = mCardSpecs.size();
+        mCards = new Card[cardCount];
+        mGeometry = new DeckGeometry(cardCount, side);
+        for (int i = 0; i < cardCount; i++){
+            CardSpec spec = mCardSpecs.get(i);
+            mGeometry.setCollapsedWidth(i, spec.collapsedWidth);
+            if (spec.width > 0){
+                // known before layout, so saved offsets could be restored before the first draw
+                mGeometry.setWidth(i, spec.width);
+            }
+        }
+        mDeckState = new DeckState(mGeometry);
+        mRevealTracker = new RevealTracker(mGeometry);
+        mDeckMotion = new DeckMotion(mGeometry, mDeckState, new SlideAnimation(mSlideDuration),
+                ViewConfiguration.get(act).getScaledMinimumFlingVelocity(), mMotionCallback);
+
+        if (!builder.mDeferredInstall){
+            install();
+        } else if (builder.mInstallOnEdgeTouch){
+            addInstallTrigger();
+        } else {
+            installAfterFirstFrame();
+        }
+    }
 
-        // set size
-        mCollapsedWidth = getResources().getDimensionPixelSize(R.dimen.menu_width_collapsed);
-        mSlideDuration = SLIDE_DURATION;
+    /**
+     * creates containers of the cards and moves activity content into the base card,
+     * called by constructor, unless the deck is built with {@link Builder#setDeferredInstall(boolean)},
+     * in that case it could be called earlier than the deck installs itself
+     *
+     * deferred install with {@link Motion#TRANSLATION} leaves activity content in its window as the base card,
+     * and only adds containers of the cards around it
+     */
+    public void install() {
+        if (mIsInstalled) return;
+        mIsInstalled = true;
 
-        if (DEBUG) Log.v(TAG, String.format("init mCollapsedWidth {%d} slideDuration {%d}",
-                mCollapsedWidth, mSlideDuration));
+        if (DEBUG) Log.v(TAG, "install");
 
-        mLayers = new SparseArray<>();
-        mLayerToContainer = new HashMap<>();
-        mLayerToChild = new HashMap<>();
+        Activity act = mActivity;
+        int side = mSide;
+        int cardCount = mCards.length;
 
-        LayoutInflater inflater = (LayoutInflater) act.getSystemService(Context.LAYOUT_INFLATER_SERVICE);
         View actionBarOverlay = (View) act.findViewById(android.R.id.content).getParent();
-
         FrameLayout activityParentView = (FrameLayout) actionBarOverlay.getParent();
-        View slideContainerView = inflater.inflate(R.layout.slide_container, activityParentView, true);
 
-        // create layers
-        // todo may be do it in code (in cycle) do not load them from XML
-        FrameLayout card1Container = (FrameLayout) slideContainerView.findViewById(R.id.card_1_container);
-        FrameLayout card2Container = (FrameLayout) slideContainerView.findViewById(R.id.card_2_container);
+        // content is drawn already, reparenting would detach it: relayout, lost focus and
+        // destroyed surfaces of TextureView and SurfaceView, translation lets it stay where it is
+        boolean isContentInPlace = mIsDeferredInstall && mMotion == Motion.TRANSLATION;
+        removeInstallTrigger();
+
+        // create layers, the deepest card goes first so upper cards are drawn over it
+        for (int i = cardCount - 1; i >= 0; i--){
+            CardSpec spec = mCardSpecs.get(i);
+            int layerNumber = i + 1;
+
+            FrameLayout container = new FrameLayout(act);
+            // only the base card handles gestures by default
+            SlideLayer layer = new SlideLayer(act, layerNumber, layerNumber == 1);
+            if (spec.layerId != View.NO_ID){
+                layer.setId(spec.layerId);
+            }
 
-        mBaseLayer = (SlideLayer) slideContainerView.findViewById(R.id.card_1_layer);
-        mChildLayer = (SlideLayer) slideContainerView.findViewById(R.id.card_2_layer);
-        SlideLayer card3Layer = (SlideLayer) slideContainerView.findViewById(R.id.card_3_layer);
+            container.addView(layer, new FrameLayout.LayoutParams(spec.width, LayoutParams.MATCH_PARENT));
+            FrameLayout.LayoutParams containerParams =
+                    new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT);
+            if (isContentInPlace && i > 0){
+                // cards below the base card go under activity content
+                activityParentView.addView(container, activityParentView.indexOfChild(actionBarOverlay), containerParams);
+            } else {
+                activityParentView.addView(container, containerParams);
+            }
 
-        // return action bar
-        activityParentView.removeView(actionBarOverlay);
-        mBaseLayer.addView(actionBarOverlay);
+            setupLayer(container, layer, side);
+            layer.setTracer(mTracer);
+            mCards[i].contentFactory = spec.contentFactory;
+            mCards[i].materialized = (spec.contentFactory == null);
+            mCards[i].hardwareLayerEnabled = mHardwareLayersEnabled;
+            if (i > 0){
+                setupChildLayer(layer, side);
+            }
+        }
 
-        setupLayer(card1Container, mBaseLayer, mChildLayer, side);
-        setupLayer(card2Container, mChildLayer, card3Layer, side);
+        mBaseLayer = mCards[0].layer;
+        mChildLayer = (cardCount > 1) ? mCards[1].layer : null;
+
+        if (isContentInPlace){
+            // empty base layer over activity content takes gestures of the deck and moves with the content
+            mBaseContent = actionBarOverlay;
+            mBaseLayer.setPassThrough(true);
+        } else {
+            // return action bar
+            activityParentView.removeView(actionBarOverlay);
+            mBaseLayer.addView(actionBarOverlay);
+        }
+
+        if (mFrameClock == null){
+            mFrameClock = new VsyncFrameClock(mBaseLayer);
+        }
+        mDeckMotion.setFrameClock(mFrameClock);
+
+        if (mIsDebugOverlayEnabled){
+            addDebugOverlay();
+        }
+
+        if (mPendingState != null){
+            Bundle state = mPendingState;
+            mPendingState = null;
+            restoreState(state);
+        }
     }
 
-    @Override
-    protected void onRestoreInstanceState(Parcelable state)	{
-        super.onRestoreInstanceState(state != null ? ((Bundle) state).getParcelable(KEY_SUPERSTATE) : null);
-        try{
-            if (state instanceof Bundle) {
-                Bundle bundle = (Bundle) state;
+    public boolean isInstalled() {
+        return mIsInstalled;
+    }
 
-                if(bundle.getBoolean(KEY_MENUSHOWN)){
-//                    show(false); // show without animation
-                }
+    /**
+     * lets activity content draw its first frame without the deck,
+     * the deck is installed right after that frame
+     */
+    private void installAfterFirstFrame(){
+        final View decorView = mActivity.getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                // runs after the frame, which is about to be drawn
+                decorView.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        install();
+                    }
+                });
+                return true;
             }
+        });
+    }
+
+    /**
+     * waits for the first touch at the edge of the window, see {@link Builder#setInstallOnEdgeTouch(boolean)}
+     */
+    private void addInstallTrigger(){
+        ViewGroup decorView = (ViewGroup) mActivity.getWindow().getDecorView();
+        int width = mActivity.getResources().getDimensionPixelSize(R.dimen.slide_layer_touch_width);
+        int gravity = (mSide == Side.LEFT) ? Gravity.LEFT : Gravity.RIGHT;
+
+        mInstallTrigger = new InstallTrigger(mActivity);
+        decorView.addView(mInstallTrigger, new FrameLayout.LayoutParams(width, LayoutParams.MATCH_PARENT, gravity));
+    }
+
+    private void removeInstallTrigger(){
+        // the trigger passes the rest of its gesture to the deck, it is removed at the end of the gesture
+        if (mInstallTrigger == null || mInstallTrigger.isForwarding()) return;
+
+        ((ViewGroup) mInstallTrigger.getParent()).removeView(mInstallTrigger);
+        mInstallTrigger = null;
+    }
+
+    /**
+     * strip at the edge of the window, which installs the deck on the first touch,
+     * the gesture goes on to the base layer, so the first drag already moves the deck
+     */
+    private class InstallTrigger extends View {
+        private boolean mIsForwarding;
+
+        InstallTrigger(Context context) {
+            super(context);
         }
-        catch(NullPointerException e) {
-            // in case the menu was not declared via XML but added from code
+
+        boolean isForwarding() {
+            return mIsForwarding;
+        }
+
+        @Override
+        public boolean onTouchEvent(MotionEvent event) {
+            int action = event.getActionMasked();
+            if (action == MotionEvent.ACTION_DOWN){
+                mIsForwarding = true;
+                install();
+            }
+            if (!mIsForwarding) return false;
+
+            // base layer is not laid out yet, it is going to span the window from its top left corner
+            event.offsetLocation(getLeft(), getTop());
+            mBaseLayer.dispatchTouchEvent(event);
+            event.offsetLocation(-getLeft(), -getTop());
+
+            if (action == MotionEvent.ACTION_UP || action == MotionEvent.ACTION_CANCEL){
+                mIsForwarding = false;
+                // not removed in the middle of dispatch of its own event
+                post(new Runnable() {
+                    @Override
+                    public void run() {
+                        removeInstallTrigger();
+                    }
+                });
+            }
+            return true;
         }
     }
 
-    @Override
-    protected Parcelable onSaveInstanceState()	{
-        Bundle bundle = new Bundle();
-        bundle.putParcelable(KEY_SUPERSTATE, super.onSaveInstanceState());
-        bundle.putBoolean(KEY_MENUSHOWN, menuIsShown);
+    /**
+     * controller is not attached to the window, so its state is not saved by the framework,
+     * should be called from {@link Activity#onSaveInstanceState(Bundle)}
+     */
+    public void saveState(Bundle outState) {
+        if (!mIsInstalled){
+            // nothing has moved yet, keep the state, which is not applied
+            Bundle state = (mPendingState != null) ? mPendingState.getBundle(KEY_DECK_STATE) : null;
+            if (state != null){
+                outState.putBundle(KEY_DECK_STATE, state);
+            }
+            return;
+        }
+
+        // deck in motion, dragged or animated, is restored where it would come to rest
+        int cardCount = mCards.length;
+        int[] offsets = new int[cardCount];
+        mDeckMotion.getRestingOffsets(offsets);
 
-        return bundle;
+        Bundle state = new Bundle();
+        state.putIntArray(KEY_OFFSETS, offsets);
+        for (int i = 0; i < cardCount; i++){
+            if (mCards[i].savedState != null){
+                state.putBundle(KEY_CARD_CONTENT_STATE + i, mCards[i].savedState);
+            }
+        }
+        outState.putBundle(KEY_DECK_STATE, state);
+    }
+
+    /**
+     * should be called from {@link Activity#onCreate(Bundle)} right after the controller is built,
+     * cards are put at their saved offsets before the first draw without animation,
+     * content is created only for cards, which are revealed
+     */
+    public void restoreState(Bundle savedState) {
+        if (!mIsInstalled){
+            // applied as soon as the deck is installed
+            mPendingState = savedState;
+            return;
+        }
+
+        Bundle state = (savedState != null) ? savedState.getBundle(KEY_DECK_STATE) : null;
+        if (state == null) return;
+
+        int[] offsets = state.getIntArray(KEY_OFFSETS);
+        if (offsets == null || offsets.length != mCards.length){
+            // deck was built with another number of cards
+            return;
+        }
+
+        if (mDeckMotion.isInMotion()){
+            // restored in onCreate, nothing could move the deck yet
+            return;
+        }
+        // before the first layout widths are not known, offsets are clamped once they are
+        for (int i = 0; i < offsets.length; i++){
+            mCards[i].savedState = state.getBundle(KEY_CARD_CONTENT_STATE + i);
+            mGeometry.setOffset(i, offsets[i]);
+        }
+        if (DEBUG) Log.v(TAG, String.format("restoreState offsets=%s", Arrays.toString(offsets)));
+
+        for (int i = 0; i < mCards.length; i++){
+            if (mGeometry.isOpened(i)){
+                materializeChild(i);
+            }
+        }
+
+        // scroll and translation do not need layout, cards are drawn at their offsets in the first frame
+        applyOffsets(mCards.length - 1);
+        mDeckState.onSettled();
+        dispatchDeckChanges();
     }
 
     /**
@@ -133,16 +445,18 @@ public class SlideController extends LinearLayout{
      * @param layer handles user gestures
      * @param container actually slides
      */
-    private void setupLayer(FrameLayout container, SlideLayer layer, SlideLayer childLayer, int side){
-        mLayerToContainer.put(layer, container);
-        mLayerToChild.put(layer, childLayer);
-
-        int layerNumber = layer.getLayerNumber();
-        mLayers.put(layerNumber, layer);
+    private void setupLayer(FrameLayout container, SlideLayer layer, int side){
+        int index = layer.getLayerNumber() - 1;
+        mCards[index] = new Card(layer, container);
 
         layer.setupLayer(side);
         layer.addDelegate(mLayerDelegate);
+    }
 
+    /**
+     * aligns the card revealed by its parent with the side of the deck
+     */
+    private void setupChildLayer(SlideLayer childLayer, int side){
         FrameLayout.LayoutParams params = (FrameLayout.LayoutParams) childLayer.getLayoutParams();
         final int gravity;
         switch (side){
@@ -155,316 +469,787 @@ public class SlideController extends LinearLayout{
         }
         params.gravity = gravity;
         childLayer.setLayoutParams(params);
-        setupPaddingTop(childLayer);
+
+        // cards are added to the decor view, which could be overlaid by status bar,
+        // insets tell where it is: on the top of the phone screen, or on the bottom on tablets
+        childLayer.setInsetsPaddingEnabled(true);
     }
 
-    private void setupPaddingTop(SlideLayer layer){
-        /*
-         * todo it does not work properly all the time, because status bar could be on the bottom
-         * of the screen (on tablets) but we apply padding on the top :(
-         */
+    public void switchState(SlideLayer layer, boolean nextOpened){
+        mDeckMotion.settle(layer.getLayerNumber() - 1, nextOpened, 0);
+    }
 
-        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB){
-            // on Nexus S (with android 2.3) extra paddingTop NOT needed
-        } else {
-            // on Nexus 4 (with android 4.4 KitKat) and it's necessary
-            // to add extra paddingTop to get proper layout, because the top part
-            // of layout is overlaid by status bar
-            int statusHeight = getStatusBarHeight();
-            layer.setPadding(0, statusHeight, 0, 0);
-        }
+    /**
+     * @return true when there is no running animation and no drag in progress
+     */
+    public boolean isSettled() {
+        return mDeckMotion.isSettled();
     }
 
-    private int getStatusBarHeight() {
-        int statusHeight = 0;
-        int resourceId = getResources().getIdentifier("status_bar_height", "dimen", "android");
-        if (resourceId > 0) {
-            statusHeight = getResources().getDimensionPixelSize(resourceId);
+    /**
+     * measures every gesture and settle animation of the deck, metrics are off by default
+     *
+     * @param sink - receives one record per gesture or animation on the ui thread, null to stop measuring
+     */
+    public void setMotionMetricsSink(MotionMetrics.Sink sink){
+        if (sink == null){
+            mDeckMotion.setMetrics(null);
+            return;
         }
-        return statusHeight;
+
+        MotionMetrics metrics = new MotionMetrics(sink);
+        float refreshRate = mActivity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        if (refreshRate > 0){
+            metrics.setFrameBudgetNanos((long) (NANOS_PER_SECOND / refreshRate));
+        }
+        mDeckMotion.setMetrics(metrics);
     }
 
-    public void switchState(final SlideLayer layer, boolean nextOpened){
-        View container = mLayerToContainer.get(layer);
-        View childLayer = mLayerToChild.get(layer);
+    /**
+     * marks touch handling, drags, animation frames and creation of card content as systrace sections,
+     * could be switched at any time
+     */
+    public void setTraceEnabled(boolean enabled){
+        mTracer = enabled ? SystemTracer.INSTANCE : null;
 
-        final int targetScrollX;
-        if (nextOpened){
-            switch (mSide){
-                case Side.LEFT:
-                    // move from left to right (open)
-                    targetScrollX = -childLayer.getWidth();
-                    break;
-                default:
-                    targetScrollX = childLayer.getWidth();
-                    break;
+        mDeckMotion.setTracer(mTracer);
+        if (mIsInstalled){
+            for (int i = 0; i < mCards.length; i++){
+                mCards[i].layer.setTracer(mTracer);
             }
-        } else {
-            // move from right to left (close)
-            targetScrollX = 0;
         }
+    }
 
-        if (DEBUG) Log.v(TAG, String.format("switchState targetScrollX=%d", targetScrollX));
-
-        mCurrentScrollX = container.getScrollX();
-        int duration = mSlideDuration;
-
-        if (Build.VERSION.SDK_INT < BUILD_MAP_AS_TEXTURE_VIEW){
-            int totalDeltaX = targetScrollX - mCurrentScrollX;
-            int tick = 30;
-            final int tickDeltaX = (int)(totalDeltaX * ((float)tick / duration));
-            new CountDownTimer(duration, tick) {
-                @Override
-                public void onTick(long millisUntilFinished) {
-                    int x = mCurrentScrollX + tickDeltaX;
-                    applyAnimation(layer, x);
-                }
+    /**
+     * draws debug panel over the deck with offset, state and drawing of every card and time of frames
+     */
+    public void setDebugOverlayEnabled(boolean enabled){
+        if (mIsDebugOverlayEnabled == enabled) return;
+        mIsDebugOverlayEnabled = enabled;
 
-                @Override
-                public void onFinish() {
-                    applyAnimation(layer, targetScrollX);
-                }
-            }.start();
+        if (!mIsInstalled) return;
+        if (enabled){
+            addDebugOverlay();
         } else {
-            ValueAnimator animator = ValueAnimator.ofInt(mCurrentScrollX, targetScrollX);
-            animator.setDuration(duration);
-            animator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
-                @Override
-                public void onAnimationUpdate(ValueAnimator animation) {
-                    int x = (Integer)animation.getAnimatedValue();
-                    applyAnimation(layer, x);
-                }
-            });
-            animator.start();
+            ((ViewGroup) mDebugOverlay.getParent()).removeView(mDebugOverlay);
+            mDebugOverlay = null;
         }
     }
 
-    private void applyAnimation(SlideLayer layer, int x){
-        int deltaX = x - mCurrentScrollX;
-        mCurrentScrollX = x;
-//        if (DEBUG) Log.v(TAG, String.format("applyAnimation x=%d deltaX=%d", x, deltaX));
-        onScroll(layer, -deltaX);
+    private void addDebugOverlay(){
+        // over all cards, containers of the deck share the parent
+        ViewGroup deckParent = (ViewGroup) mCards[0].container.getParent();
+        mDebugOverlay = new DeckDebugOverlay(mActivity, this);
+        deckParent.addView(mDebugOverlay,
+                new FrameLayout.LayoutParams(LayoutParams.MATCH_PARENT, LayoutParams.MATCH_PARENT));
     }
 
-    private SlideLayer getNextLayer(SlideLayer layer){
-        SlideLayer childLayer = getChildLayer(layer);
+    /**
+     * views follow the model of the deck
+     */
+    private DeckMotion.Callback mMotionCallback = new DeckMotion.Callback() {
+        @Override
+        public void onRevealing(int index) {
+            materializeChild(index);
+        }
 
-        boolean hasChildLayer = (childLayer != null);
-        boolean isChildLayerOpened = false;
-        if (hasChildLayer){
-            isChildLayerOpened = isOpened(childLayer);
+        @Override
+        public void onMotionStep(int activeIndex, boolean isFirstStep) {
+            onMotionStarted(activeIndex, isFirstStep);
         }
 
-        if (DEBUG) Log.v(TAG, String.format("getNextLayer layerNumber=%d hasChildLayer=%b isChildLayerOpened=%b",
-                layer.getLayerNumber(), hasChildLayer, isChildLayerOpened));
+        @Override
+        public int onOffsetsChanged(int activeIndex) {
+            return applyOffsets(activeIndex);
+        }
 
-        if (isChildLayerOpened){
-            return getNextLayer(childLayer);
-        } else {
-            return layer;
+        @Override
+        public void onSettled() {
+            SlideController.this.onSettled();
         }
+
+        @Override
+        public void onFrameEnd() {
+            // listeners are notified once per frame, not on every touch event
+            dispatchDeckChanges();
+        }
+    };
+
+    /**
+     * @return the deepest opened card starting from the layer, or the layer itself
+     */
+    private SlideLayer getNextLayer(SlideLayer layer){
+        int index = mDeckState.getNextIndex(layer.getLayerNumber() - 1);
+        return mCards[index].layer;
+    }
+
+    /**
+     * @param layerNumber - from 1 for the base card to {@link #getCardCount()} for the deepest one
+     */
+    public SlideLayer getLayer(int layerNumber) {
+        install();
+        return mCards[layerNumber - 1].layer;
     }
 
-    private SlideLayer getChildLayer(SlideLayer layer){
-        return mLayerToChild.get(layer);
+    public int getCardCount() {
+        return mCards.length;
     }
 
     public SlideLayer getBaseLayer() {
+        install();
         return mBaseLayer;
     }
 
     public SlideLayer getChildLayer() {
+        install();
         return mChildLayer;
     }
 
     private SlideLayer.Delegate mLayerDelegate = new SlideLayer.Delegate() {
+        @Override
+        public void onSizeChanged(SlideLayer layer, int width) {
+            int index = layer.getLayerNumber() - 1;
+            mGeometry.setWidth(index, width);
+
+            // caps could change, move cards to the offsets geometry allows now,
+            // restored offsets are clamped here, when the last card is measured, before the first draw
+            applyOffsets(mGeometry.getCardCount() - 1);
+            if (!mDeckMotion.isInMotion()){
+                applyVisibleSpans();
+                mDeckState.onSettled();
+            }
+            dispatchDeckChanges();
+        }
+
         @Override
         public boolean shouldInterceptEvents(SlideLayer layer) {
-            // TODO: return true when layer is opened
-            boolean shouldIntercept = isOpened(layer);
+            return isOpened(layer);
+        }
+
+        @Override
+        public void onActionMove(SlideLayer layer, float distanceX, long eventTime) {
+            // events go to the deepest opened card below the layer
+            SlideLayer activeLayer = getNextLayer(layer);
+            if (layer.isTouchModeEnabled() && activeLayer.isTouchModeEnabled()){
+                // uptime and frame clock of the display count the same monotonic time
+                mDeckMotion.drag(activeLayer.getLayerNumber() - 1, distanceX, eventTime * NANOS_PER_MILLI);
+            }
+        }
 
-            int layerNumber = layer.getLayerNumber();
-            if (DEBUG) Log.v(TAG, String.format("shouldInterceptEvents number=%d shouldIntercept=%b",
-                    layerNumber, shouldIntercept));
+        @Override
+        public int getAvailableDrag(SlideLayer layer, int distanceX) {
+            SlideLayer activeLayer = getNextLayer(layer);
+            if (!layer.isTouchModeEnabled() || !activeLayer.isTouchModeEnabled()) return 0;
 
-            return shouldIntercept;
+            return mDeckMotion.getAvailableDrag(activeLayer.getLayerNumber() - 1, distanceX);
         }
 
         @Override
-        public void onActionMove(SlideLayer layer, float distanceX) {
-//            if (DEBUG) Log.v(TAG, String.format("onActionMove layerNumber=%d isTouchModeEnabled=%b",
-//                    layerNumber, layer.isTouchModeEnabled()));
-
-            if (layer.isTouchModeEnabled()){
-                // pass events to lower child layer
-                SlideLayer childLayer = getNextLayer(layer);
-                boolean hasChildLayer = (!childLayer.equals(layer));
-                if (hasChildLayer){
-                    onActionMove(childLayer, distanceX);
-                } else {
-                    onScroll(layer, distanceX);
-                }
+        public void onActionUp(SlideLayer layer, float distanceX, float velocityX) {
+            // events go to the deepest opened card below the layer
+            SlideLayer activeLayer = getNextLayer(layer);
+            if (layer.isTouchModeEnabled() && activeLayer.isTouchModeEnabled()){
+                mDeckMotion.release(activeLayer.getLayerNumber() - 1, distanceX, velocityX);
             }
         }
+    };
 
-        @Override
-        public void onActionUp(SlideLayer layer, float distanceX) {
-            if (layer.isTouchModeEnabled()){
-                // pass events to lower child layer
-                SlideLayer childLayer = getNextLayer(layer);
-                if (childLayer.equals(layer)){
-                    boolean nextStateOpened;
-                    switch (mSide){
-                        case Side.LEFT:
-                            nextStateOpened = (distanceX > 0);
-                            break;
-                        default:
-                            nextStateOpened = (distanceX < 0);
-                            break;
-                    }
-                    switchState(layer, nextStateOpened);
-                } else {
-                    onActionUp(childLayer, distanceX);
+    /**
+     * creates content of the card, which is going to be revealed by the card at index
+     */
+    private void materializeChild(int index){
+        int childIndex = index + 1;
+        if (childIndex >= mCards.length) return;
+
+        Card child = mCards[childIndex];
+        child.lastRevealed = ++mRevealCounter;
+        if (!child.materialized){
+            child.materialized = true;
+
+            Tracer tracer = mTracer;
+            if (tracer != null) tracer.beginSection(SECTION_MATERIALIZE);
+
+            Bundle savedState = child.savedState;
+            child.savedState = null;
+
+            // new content has to be laid out before it is revealed, even in the middle of motion
+            boolean isLayoutSuppressed = child.layer.isLayoutSuppressed();
+            child.layer.setLayoutSuppressed(false);
+            child.contentFactory.onCreateCardContent(child.layer, savedState);
+            child.layer.setLayoutSuppressed(isLayoutSuppressed);
+
+            if (tracer != null) tracer.endSection();
+        }
+    }
+
+    /**
+     * called when slide animation reaches its target
+     */
+    private void onSettled(){
+        setLayoutSuppressed(false);
+        applyVisibleSpans();
+        demoteCards();
+        trimHiddenCards(mMaxHiddenCards);
+    }
+
+    /**
+     * publishes state transitions and reveal progress accumulated since the previous call
+     */
+    private void dispatchDeckChanges(){
+        if (mOnDeckStateChangeListener != null){
+            for (int i = 0; i < mCards.length; i++){
+                if (mDeckState.isChanged(i)){
+                    mOnDeckStateChangeListener.onCardStateChanged(mCards[i].layer, mDeckState.getState(i));
                 }
             }
         }
-    };
+        mDeckState.clearChanges();
 
-    private void onScroll(SlideLayer activeLayer, float distanceX){
-        int layerNumber = activeLayer.getLayerNumber();
-        if (DEBUG) Log.v(TAG, String.format("onScroll layerNumber=%d", layerNumber));
-
-        View activeContainer = mLayerToContainer.get(activeLayer);
-
-        for (int i = layerNumber; i > 0; i--){
-            View layer = mLayers.get(i);
-            if (layer != null){
-                View container = mLayerToContainer.get(layer);
-                View childLayer = mLayerToChild.get(layer);
-
-                boolean activeCard = (i == layerNumber);
-                int maxScrollX;
-
-                int adjDeltaX = (int)distanceX;
-                if (activeCard){
-                    maxScrollX = childLayer.getWidth();
-                } else {
-                    final int activeLayerWidth = activeLayer.getWidth();
-                    final int distanceSide;
-                    final int viewMaxScroll = layer.getWidth() - i * mCollapsedWidth;
-
-                    switch (mSide){
-                        case Side.LEFT:
-                            // distance from left side
-                            distanceSide = activeLayerWidth - activeContainer.getScrollX();
-                            if (distanceX < 0){
-                                // move from right to left
-                                int scrollX = container.getScrollX();
-                                if (-scrollX < activeLayerWidth){
-                                    adjDeltaX = 0;
-                                }
-                            }
-
-                            if (distanceSide > viewMaxScroll){
-                                maxScrollX = viewMaxScroll;
-                            } else {
-                                maxScrollX = distanceSide;
-                            }
-                            break;
-                        default:
-                            // todo check signs
-
-                            // todo distance from right side
-                            distanceSide = activeLayerWidth + activeContainer.getScrollX();
-                            if (distanceX > 0){
-                                // move from left to right
-                                int scrollX = container.getScrollX();
-                                if (-scrollX < activeLayerWidth){
-                                    adjDeltaX = 0;
-                                }
-                            }
-
-                            if (distanceSide > viewMaxScroll){
-                                maxScrollX = viewMaxScroll;
-                            } else {
-                                maxScrollX = distanceSide;
-                            }
-                            break;
-                    }
+        if (mDebugOverlay != null){
+            mDebugOverlay.invalidate();
+        }
 
-//                    if (DEBUG) Log.d(TAG, String.format("onScroll activeSlideView.getScrollX=%d width=%d distanceSide=%d viewMaxScroll=%d",
-//                            activeSlideView.getScrollX(), interact.getWidth(), distanceSide, viewMaxScroll));
+        if (!mRevealTracker.update()) return;
+
+        if (mOnRevealListener != null){
+            for (int i = 0; i < mCards.length; i++){
+                if (mRevealTracker.isChanged(i)){
+                    mOnRevealListener.onRevealProgress(mCards[i].layer, mRevealTracker.getProgress(i));
                 }
+            }
+        }
+
+        // backwards, listener could remove its threshold while it is notified
+        for (int t = mRevealThresholds.size() - 1; t >= 0; t--){
+            if (t >= mRevealThresholds.size()) continue;
+
+            RevealThreshold threshold = mRevealThresholds.get(t);
+            int crossing = mRevealTracker.getCrossing(threshold.index, threshold.threshold);
+            if (crossing != 0){
+                threshold.listener.onRevealThreshold(mCards[threshold.index].layer, threshold.threshold, crossing > 0);
+            }
+        }
+    }
+
+    public void setOnRevealListener(OnRevealListener listener) {
+        mOnRevealListener = listener;
+    }
+
+    /**
+     * @param threshold - reveal progress within (0, 1], listener is notified
+     *                  when the card reaches it and when it goes back below it
+     */
+    public void addRevealThreshold(SlideLayer layer, float threshold, OnRevealThresholdListener listener) {
+        if (threshold <= 0 || threshold > 1) throw new IllegalArgumentException("threshold should be within (0, 1]");
+
+        mRevealThresholds.add(new RevealThreshold(layer.getLayerNumber() - 1, threshold, listener));
+    }
+
+    /**
+     * removes all thresholds registered with the listener
+     */
+    public void removeRevealThreshold(OnRevealThresholdListener listener) {
+        for (int i = mRevealThresholds.size() - 1; i >= 0; i--){
+            if (mRevealThresholds.get(i).listener == listener){
+                mRevealThresholds.remove(i);
+            }
+        }
+    }
+
+    /**
+     * @return reveal progress of the card at the last frame, from 0 to 1
+     */
+    public float getRevealProgress(SlideLayer layer) {
+        return mRevealTracker.getProgress(layer.getLayerNumber() - 1);
+    }
+
+    public void setOnDeckStateChangeListener(OnDeckStateChangeListener listener) {
+        mOnDeckStateChangeListener = listener;
+    }
+
+    /**
+     * @return one of {@link DeckState} values, cached state is returned, no views are read
+     */
+    public int getCardState(SlideLayer layer) {
+        return mDeckState.getState(layer.getLayerNumber() - 1);
+    }
+
+    /**
+     * @return the deepest card, which is moved away from its side, or null when the deck is closed
+     */
+    public SlideLayer getDeepestOpenedLayer() {
+        int index = mDeckState.getDeepestOpenedIndex();
+        return (index >= 0) ? mCards[index].layer : null;
+    }
+
+    /**
+     * called on every step of a drag or animation, promotes cards,
+     * which could move, to hardware layers, so they are not redrawn on every frame,
+     * only when the window is hardware accelerated
+     *
+     * @param activeIndex - index of the lowest card, which offset could change
+     * @param isFirstStep - true when the deck was settled before this step
+     */
+    private void onMotionStarted(int activeIndex, boolean isFirstStep){
+        if (isFirstStep){
+            // visible parts change on every frame of motion, draw cards in full until deck settles
+            clearVisibleSpans();
+            setLayoutSuppressed(true);
+
+            if (mDebugOverlay != null){
+                mDebugOverlay.onMotionStarted();
+            }
+        }
+
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.HONEYCOMB) return;
+
+        for (int i = activeIndex; i >= 0; i--){
+            Card card = mCards[i];
+            // without hardware acceleration the layer falls back to a software one,
+            // which redraws the whole card into a bitmap and costs more than it saves
+            View cardView = getCardView(i);
+            if (card.hardwareLayerEnabled && !card.promoted && cardView.isHardwareAccelerated()){
+                card.promoted = true;
+
+                if (DEBUG) Log.v(TAG, String.format("promote layerNumber=%d", i + 1));
+                cardView.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+                // render layer now, not on the first frame of motion
+                cardView.buildLayer();
+            }
+        }
+    }
+
+    /**
+     * defers layout requests of the content until the deck settles,
+     * cards are moved by scroll or translation, which never needs layout
+     */
+    private void setLayoutSuppressed(boolean suppressed){
+        if (suppressed){
+            mLayoutCountAtMotionStart = getLayoutCount();
+        } else if (DEBUG){
+            int layoutCount = getLayoutCount() - mLayoutCountAtMotionStart;
+            if (layoutCount > 0){
+                Log.w(TAG, String.format("%d layout passes during motion", layoutCount));
+            }
+        }
+
+        for (int i = 0; i < mCards.length; i++){
+            mCards[i].layer.setLayoutSuppressed(suppressed);
+        }
+    }
+
+    /**
+     * @return number of layout passes of all cards, deck in motion should not add any
+     */
+    public int getLayoutCount(){
+        if (!mIsInstalled) return 0;
+
+        int layoutCount = 0;
+        for (int i = 0; i < mCards.length; i++){
+            layoutCount += mCards[i].layer.getLayoutCount();
+        }
+        return layoutCount;
+    }
 
-                scrollByX(container, adjDeltaX, maxScrollX);
+    /**
+     * @return number of invalidations of all cards and their content
+     */
+    public int getInvalidateCount(){
+        if (!mIsInstalled) return 0;
+
+        int invalidateCount = 0;
+        for (int i = 0; i < mCards.length; i++){
+            invalidateCount += mCards[i].layer.getInvalidateCount();
+        }
+        return invalidateCount;
+    }
+
+    private void demoteCards(){
+        for (int i = 0; i < mCards.length; i++){
+            Card card = mCards[i];
+            if (card.promoted){
+                card.promoted = false;
+
+                if (DEBUG) Log.v(TAG, String.format("demote layerNumber=%d", i + 1));
+                getCardView(i).setLayerType(View.LAYER_TYPE_NONE, null);
+            }
+        }
+    }
+
+    /**
+     * clips every card to its part, which is not covered by cards above it,
+     * fully covered cards are not drawn at all
+     */
+    private void applyVisibleSpans(){
+        if (!mIsOverdrawClippingEnabled) return;
+
+        mGeometry.computeVisibleSpans();
+        for (int i = 0; i < mCards.length; i++){
+            Card card = mCards[i];
+            if (mGeometry.isCovered(i)){
+                card.container.setVisibility(View.INVISIBLE);
             } else {
-                if (DEBUG) Log.w(TAG, String.format("onScroll v == null for tag %d", i));
+                card.container.setVisibility(View.VISIBLE);
+                card.layer.setVisibleSpan(mGeometry.getVisibleLeft(i), mGeometry.getVisibleRight(i));
             }
         }
     }
 
+    private void clearVisibleSpans(){
+        if (!mIsOverdrawClippingEnabled) return;
+
+        for (int i = 0; i < mCards.length; i++){
+            Card card = mCards[i];
+            card.container.setVisibility(View.VISIBLE);
+            card.layer.clearVisibleSpan();
+        }
+    }
+
     /**
+     * cached hardware layer goes stale, when content of the card is animated itself (map, video),
+     * disable promotion for such cards
      *
-     * @param container
-     * @param delta - positive value, when moving from left to right;
-     *              negative value, when moving from right to left
-     * @param maxScrollX - positive value, max scroll available for this view
+     * @param enabled - true to move the card as hardware layer during drags and animations
      */
-    private void scrollByX(View container, int delta, int maxScrollX){
-        int adjDelta = -delta;
+    public void setHardwareLayerEnabled(SlideLayer layer, boolean enabled) {
+        Card card = mCards[layer.getLayerNumber() - 1];
+        card.hardwareLayerEnabled = enabled;
+        if (!enabled && card.promoted){
+            card.promoted = false;
+            getCardView(layer.getLayerNumber() - 1).setLayerType(View.LAYER_TYPE_NONE, null);
+        }
+    }
 
-        /**
-         * scrollX - positive value, when left edge of the view is beyond the left edge of the screen
-         *          negative value, when right edge is beyond the right edge of the screen
-         */
-        int scrollX = container.getScrollX();
-        int nextScrollX = scrollX + adjDelta;
-        switch (mSide){
-            case Side.LEFT:
-                if (nextScrollX > 0) {
-                    // we will be beyond the left edge, return to the ground
-                    adjDelta = -scrollX;
-                } else {
-                    // we will open up the lower layer too much, do not allow it
-                    // nextScrollX = -600
-                    // maxScrollX = 420
-                    // scrollX = -400
-                    if (nextScrollX < -maxScrollX){
-                        adjDelta = -maxScrollX - scrollX;
-                    }
+    /**
+     * @return view, which draws content of the card: the layer, or activity content left in its window
+     */
+    private View getCardView(int index){
+        return (index == 0 && mBaseContent != null) ? mBaseContent : mCards[index].layer;
+    }
+
+    /**
+     * @param maxHiddenCards - max number of hidden cards, which keep their content,
+     *                       only cards created by {@link CardContentFactory} are counted and evicted
+     */
+    public void setMaxHiddenCards(int maxHiddenCards) {
+        mMaxHiddenCards = maxHiddenCards;
+        trimHiddenCards(maxHiddenCards);
+    }
+
+    /**
+     * should be called from {@link Activity#onTrimMemory(int)},
+     * releases content of all hidden cards when system is low on memory
+     */
+    public void onTrimMemory(int level) {
+        if (DEBUG) Log.v(TAG, String.format("onTrimMemory level=%d", level));
+
+        boolean isLowOnMemory = (level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL
+                || level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        if (isLowOnMemory){
+            trimHiddenCards(0);
+        }
+    }
+
+    /**
+     * evicts least recently revealed hidden cards, until there are at most maxHiddenCards of them
+     */
+    private void trimHiddenCards(int maxHiddenCards){
+        // content is never created before the deck is installed
+        if (!mIsInstalled) return;
+
+        int hiddenCount = 0;
+        for (int i = 0; i < mCards.length; i++){
+            if (isEvictable(i)) hiddenCount++;
+        }
+
+        while (hiddenCount > maxHiddenCards){
+            int lruIndex = -1;
+            for (int i = 0; i < mCards.length; i++){
+                if (isEvictable(i) && (lruIndex == -1 || mCards[i].lastRevealed < mCards[lruIndex].lastRevealed)){
+                    lruIndex = i;
+                }
+            }
+
+            evict(lruIndex);
+            hiddenCount--;
+        }
+    }
+
+    /**
+     * @return true for hidden card, which content could be created again by its factory
+     */
+    private boolean isEvictable(int index){
+        Card card = mCards[index];
+        // card is hidden when its parent card is closed and covers it
+        boolean isHidden = (index > 0 && !mGeometry.isOpened(index - 1));
+        return isHidden && card.materialized && card.contentFactory != null;
+    }
+
+    private void evict(int index){
+        if (DEBUG) Log.v(TAG, String.format("evict layerNumber=%d", index + 1));
+
+        Card card = mCards[index];
+        card.materialized = false;
+        card.savedState = new Bundle();
+        card.contentFactory.onDestroyCardContent(card.layer, card.savedState);
+    }
+
+    /**
+     * moves containers to the offsets computed by geometry,
+     * views of cards, which offset did not change, are not touched
+     *
+     * @param activeIndex - index of the lowest card, which offset could change
+     * @return number of cards actually moved
+     */
+    private int applyOffsets(int activeIndex){
+        int movedCount = 0;
+        for (int i = activeIndex; i >= 0; i--){
+            if (moveCard(i)) movedCount++;
+        }
+        return movedCount;
+    }
+
+    /**
+     * @return false when the card is already at its offset
+     */
+    private boolean moveCard(int index){
+        Card card = mCards[index];
+        int scrollX = mGeometry.getScrollX(index);
+        if (scrollX == card.appliedScrollX) return false;
+
+        card.appliedScrollX = scrollX;
+        switch (mMotion){
+            case Motion.TRANSLATION:
+                // scrolling container by x moves its content by -x
+                card.layer.setTranslationX(-scrollX);
+                if (index == 0 && mBaseContent != null){
+                    mBaseContent.setTranslationX(-scrollX);
                 }
                 break;
             default:
-                if (nextScrollX < 0) {
-                    // we will be beyond the right edge, return to the ground
-                    adjDelta = -scrollX;
-                } else {
-                    // we will open up the lower layer too much, do not allow it
-                    // nextScrollX = 600
-                    // maxScrollX = 420
-                    // scrollX = 400
-                    if (nextScrollX > maxScrollX){
-                        adjDelta = maxScrollX - scrollX;
-                    }
-                }
+                card.container.scrollTo(scrollX, 0);
                 break;
         }
-//        if (DEBUG) Log.d(TAG, String.format("scrollByX delta=%d maxScrollX=%d scrollX=%d adjDelta=%d nextScrollX=%d",
-//                delta, maxScrollX, scrollX, adjDelta, nextScrollX));
-        container.scrollBy(adjDelta, 0);
+        return true;
+    }
+
+    /**
+     * @return distance in pixels, which the card is moved away from its side
+     */
+    public int getOffset(SlideLayer layer){
+        return mGeometry.getOffset(layer.getLayerNumber() - 1);
     }
 
     public boolean isOpened(SlideLayer layer){
-        View container = mLayerToContainer.get(layer);
-        // container is null for the last layer in current implementation
-        // this layer is always closed
-        if (container == null) return true;
+        // the last layer has nothing to reveal, geometry keeps it always closed
+        return mGeometry.isOpened(layer.getLayerNumber() - 1);
+    }
+
+    /**
+     * record of the layer table, layer handles user gestures and container actually slides
+     */
+    private static class Card {
+        final SlideLayer layer;
+        final View container;
+
+        // scrollX last applied to the views, both layer and container are created at 0
+        int appliedScrollX;
+
+        CardContentFactory contentFactory;
+        // cards without factory get their content up front
+        boolean materialized = true;
+        // state of evicted content, null until card is evicted
+        Bundle savedState;
+        long lastRevealed;
+
+        boolean hardwareLayerEnabled;
+        // card is drawn as hardware layer while deck is in motion
+        boolean promoted;
+
+        Card(SlideLayer layer, View container) {
+            this.layer = layer;
+            this.container = container;
+        }
+    }
+
+    private static class RevealThreshold {
+        final int index;
+        final float threshold;
+        final OnRevealThresholdListener listener;
+
+        RevealThreshold(int index, float threshold, OnRevealThresholdListener listener) {
+            this.index = index;
+            this.threshold = threshold;
+            this.listener = listener;
+        }
+    }
+
+    private static class CardSpec {
+        final int layerId;
+        final int width;
+        final int collapsedWidth;
+        final CardContentFactory contentFactory;
+
+        CardSpec(int layerId, int width, int collapsedWidth, CardContentFactory contentFactory) {
+            this.layerId = layerId;
+            this.width = width;
+            this.collapsedWidth = collapsedWidth;
+            this.contentFactory = contentFactory;
+        }
+    }
+
+    /**
+     * creates deck with any number of cards in code,
+     * the base card holds activity content and is created by builder itself
+     */
+    public static class Builder {
+        private final Activity mActivity;
+        private final int mSide;
+
+        private final ArrayList<CardSpec> mCardSpecs;
+        private int mSlideDuration;
+        private int mMaxHiddenCards;
+        private int mMotion;
+        private boolean mHardwareLayersEnabled;
+        private boolean mOverdrawClippingEnabled;
+        private boolean mDeferredInstall;
+        private boolean mInstallOnEdgeTouch;
+        private FrameClock mFrameClock;
+
+        public Builder(Activity act, int side) {
+            mActivity = act;
+            mSide = side;
+
+            mSlideDuration = SLIDE_DURATION;
+            mMaxHiddenCards = MAX_HIDDEN_CARDS_UNLIMITED;
+            mMotion = Motion.SCROLL;
+            mHardwareLayersEnabled = true;
+
+            int baseCollapsedWidth = act.getResources().getDimensionPixelSize(R.dimen.menu_width_collapsed);
+            mCardSpecs = new ArrayList<>();
+            mCardSpecs.add(new CardSpec(R.id.card_1_layer, LayoutParams.MATCH_PARENT, baseCollapsedWidth, null));
+        }
+
+        /**
+         * @param collapsedWidth - visible part of the base card, when lower cards are opened
+         */
+        public Builder setBaseCollapsedWidth(int collapsedWidth) {
+            CardSpec base = mCardSpecs.get(0);
+            mCardSpecs.set(0, new CardSpec(base.layerId, base.width, collapsedWidth, null));
+            return this;
+        }
+
+        /**
+         * adds card below all previously added cards
+         *
+         * @param layerId - id of the layer, use it to put content into the card,
+         *                or {@link View#NO_ID}
+         * @param width - width of the card in pixels
+         * @param collapsedWidth - visible part of the card in pixels, when lower cards are opened
+         */
+        public Builder addCard(int layerId, int width, int collapsedWidth) {
+            return addCard(layerId, width, collapsedWidth, null);
+        }
+
+        /**
+         * adds card, which content is created only when the card is about to be revealed,
+         * until then the card stays an empty layer
+         *
+         * @param contentFactory - creates content of the card, or null to add content up front
+         */
+        public Builder addCard(int layerId, int width, int collapsedWidth, CardContentFactory contentFactory) {
+            mCardSpecs.add(new CardSpec(layerId, width, collapsedWidth, contentFactory));
+            return this;
+        }
+
+        /**
+         * @param slideDuration - slide in/out duration in milliseconds
+         */
+        public Builder setSlideDuration(int slideDuration) {
+            mSlideDuration = slideDuration;
+            return this;
+        }
 
-        int scrollX = container.getScrollX();
-        boolean isClosed = (scrollX == 0);
-        if (DEBUG) Log.v(TAG, String.format("isOpened layer=%d container scrollX=%d isOpened=%b",
-                layer.getLayerNumber(), scrollX, isClosed));
-        return !isClosed;
+        /**
+         * @param maxHiddenCards - max number of hidden cards created by {@link CardContentFactory},
+         *                       which keep their content, least recently revealed cards are evicted first
+         */
+        public Builder setMaxHiddenCards(int maxHiddenCards) {
+            mMaxHiddenCards = maxHiddenCards;
+            return this;
+        }
 
+        /**
+         * @param motion - one of {@link Motion} values, {@link Motion#SCROLL} by default
+         */
+        public Builder setMotion(int motion) {
+            mMotion = motion;
+            return this;
+        }
+
+        /**
+         * @param enabled - true to promote moving cards to hardware layers during drags and animations,
+         *                could be changed for a single card by
+         *                {@link SlideController#setHardwareLayerEnabled(SlideLayer, boolean)}
+         */
+        public Builder setHardwareLayersEnabled(boolean enabled) {
+            mHardwareLayersEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * @param enabled - true to skip drawing parts of the cards covered by upper cards,
+         *                while the deck is settled, all cards should be opaque
+         */
+        public Builder setOverdrawClippingEnabled(boolean enabled) {
+            mOverdrawClippingEnabled = enabled;
+            return this;
+        }
+
+        /**
+         * @param deferred - true to create views of the deck right after the first frame of the activity,
+         *                 so the deck does not add to the startup time, the layers are created
+         *                 earlier, when they are requested by {@link SlideController#getLayer(int)}
+         *                 or the deck is installed with {@link SlideController#install()},
+         *                 cards, which content is restored by fragment manager, need their layers
+         *                 before activity starts, do not defer install for them;
+         *                 false by default
+         *
+         *                 with {@link Motion#TRANSLATION} activity content stays in its window as the base card,
+         *                 its layer is empty, layout requests of the content are not deferred during motion
+         *                 and a tap at the edge of the closed deck does not reach the content;
+         *                 with {@link Motion#SCROLL} content is moved into the base layer after it was drawn,
+         *                 it is detached from the window: laid out again, loses focus, and surfaces of
+         *                 TextureView and SurfaceView are destroyed and created again
+         */
+        public Builder setDeferredInstall(boolean deferred) {
+            mDeferredInstall = deferred;
+            return this;
+        }
+
+        /**
+         * @param enabled - true to install deferred deck on the first touch at the edge of the window,
+         *                not after the first frame, the deck costs nothing until the user reaches for it,
+         *                see {@link #setDeferredInstall(boolean)}
+         */
+        public Builder setInstallOnEdgeTouch(boolean enabled) {
+            mInstallOnEdgeTouch = enabled;
+            return this;
+        }
+
+        /**
+         * @param frameClock - drives drags and animations, display vsync by default,
+         *                   {@link com.snaprix.carddecklibrary.model.ManualFrameClock} lets
+         *                   replays and tests step frames themselves
+         */
+        public Builder setFrameClock(FrameClock frameClock) {
+            mFrameClock = frameClock;
+            return this;
+        }
+
+        public SlideController build() {
+            return new SlideController(this);
+        }
     }
 }
\ No newline at end of file
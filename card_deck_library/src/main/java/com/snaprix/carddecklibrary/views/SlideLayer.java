@@ -2,15 +2,22 @@ package com.snaprix.carddecklibrary.views;
 
 import android.content.Context;
 import android.content.res.TypedArray;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.SystemClock;
 import android.util.AttributeSet;
 import android.util.Log;
-import android.view.GestureDetector;
 import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewParent;
 import android.view.ViewConfiguration;
 import android.widget.FrameLayout;
 
 import com.snaprix.carddecklibrary.CardDeckLibrary;
 import com.snaprix.carddecklibrary.R;
+import com.snaprix.carddecklibrary.model.EdgeDragDetector;
+import com.snaprix.carddecklibrary.model.Tracer;
+import com.snaprix.carddecklibrary.model.VelocityEstimator;
 
 
 /**
@@ -21,39 +28,101 @@ public class SlideLayer extends FrameLayout {
      * class implementing this interface will be responsible for scrolling this layer
      */
     interface Delegate {
+        void onSizeChanged(SlideLayer layer, int width);
         boolean shouldInterceptEvents(SlideLayer layer);
-        void onActionMove(SlideLayer layer, float distanceX);
-        void onActionUp(SlideLayer layer, float distanceX);
+        /**
+         * @param eventTime - time of the event in {@link SystemClock#uptimeMillis()} time base
+         */
+        void onActionMove(SlideLayer layer, float distanceX, long eventTime);
+        /**
+         * @param distanceX - movement of the finger, positive value, when moving from left to right
+         * @return part of the movement, which the deck could follow now, 0 when it could not move
+         */
+        int getAvailableDrag(SlideLayer layer, int distanceX);
+        /**
+         * @param velocityX - velocity of the finger at release in pixels per second,
+         *                  positive value, when moving from left to right
+         */
+        void onActionUp(SlideLayer layer, float distanceX, float velocityX);
     }
 
     private static final String TAG = SlideLayer.class.getSimpleName();
     private static final boolean DEBUG = CardDeckLibrary.DEBUG;
+    private static final float MILLIS_PER_SECOND = 1000f;
 
-    private GestureDetector gd;
+    private static final String SECTION_INTERCEPT = "SlideLayer#onInterceptTouchEvent";
+    private static final String SECTION_TOUCH = "SlideLayer#onTouchEvent";
 
-    private boolean isScrollHorizontal;
+    private EdgeDragDetector mDragDetector;
+    // asked once per gesture, on down
+    private boolean mWillDelegateIntercept;
 
     private float mLastMotionX;
     private float mInitialMotionX;
+    private VelocityEstimator mVelocityEstimator = new VelocityEstimator();
 
     private Delegate mDelegate;
+    // null unless tracing is enabled
+    private Tracer mTracer;
 
-    private int mPagingTouchSlop;
+    /**
+     * horizontal scroll, which nested scrolling child could not consume, moves the deck,
+     * once the deck moved it takes the rest of the gesture as far as it could move
+     */
+    private boolean mIsNestedScrollingHorizontally;
+    private boolean mIsNestedDragging;
+    private float mNestedDistanceX;
+
+    private int mTouchSlop;
     private int mTouchRegionWidth;
 
     private int mSide;
 
+    /**
+     * layer has no content, activity content stays in its window below the layer,
+     * see {@link #setPassThrough(boolean)}
+     */
+    private boolean mIsPassThrough;
+    // pass-through layer handles the gesture, since it became a drag
+    private boolean mIsPassThroughDragging;
+
     private int mLayerNumber;
     private boolean mIsTouchModeEnabled;
 
-    public SlideLayer(Context context, AttributeSet attrs) {
-        super(context, attrs);
+    /**
+     * part of the layer, which is not covered by upper cards, the rest is not drawn
+     */
+    private boolean mIsClipped;
+    private int mClipLeft;
+    private int mClipRight;
 
-        ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
-        mPagingTouchSlop = viewConfiguration.getScaledPagingTouchSlop();
-        mTouchRegionWidth = getResources().getDimensionPixelSize(R.dimen.slide_layer_touch_width);
+    /**
+     * while the deck is in motion requests for layout are deferred until it settles,
+     * moving cards never needs new measure or layout of their content
+     */
+    private boolean mIsLayoutSuppressed;
+    private boolean mIsLayoutDeferred;
+    private int mLayoutCount;
+    private int mInvalidateCount;
+
+    // cards revealed by upper cards are padded by system windows (status bar) insets
+    private boolean mIsInsetsPaddingEnabled;
+    private final Rect mChildInsets = new Rect();
+
+    /**
+     * creates layer from code, used by {@link SlideController.Builder}
+     */
+    public SlideLayer(Context context, int layerNumber, boolean isTouchModeEnabled) {
+        super(context);
+        init(context);
+
+        mLayerNumber = layerNumber;
+        mIsTouchModeEnabled = isTouchModeEnabled;
+    }
 
-        gd = new GestureDetector(context, mGestureListener);
+    public SlideLayer(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        init(context);
 
         TypedArray a = context.obtainStyledAttributes(attrs, R.styleable.SlideLayer);
         if (a != null) {
@@ -90,30 +159,13 @@ public class SlideLayer extends FrameLayout {
 //        }
     }
 
-    private GestureDetector.OnGestureListener mGestureListener = new GestureDetector.SimpleOnGestureListener(){
-        @Override
-        public boolean onScroll(MotionEvent e1, MotionEvent e2, float distanceX, float distanceY) {
-            float absDeltaX = Math.abs(distanceX);
-
-            boolean startedInTouchRegion;
-            switch (mSide){
-                case Side.LEFT:
-                    startedInTouchRegion = (e1.getX() < mTouchRegionWidth);
-                    break;
-                default:
-                    startedInTouchRegion = ((getWidth() - e1.getX()) < mTouchRegionWidth);
-                    break;
-            }
-
-            if (DEBUG) Log.v(TAG, String.format("onScroll absDeltaX={%f} e1.X={%f} startedInTouchRegion %b",
-                    absDeltaX, e1.getX(), startedInTouchRegion));
-            if (startedInTouchRegion && absDeltaX > Math.abs(distanceY)) {
-                isScrollHorizontal = true;
-            }
+    private void init(Context context){
+        ViewConfiguration viewConfiguration = ViewConfiguration.get(context);
+        mTouchSlop = viewConfiguration.getScaledTouchSlop();
+        mTouchRegionWidth = getResources().getDimensionPixelSize(R.dimen.slide_layer_touch_width);
 
-            return super.onScroll(e1, e2, distanceX, distanceY);
-        }
-    };
+        mDragDetector = new EdgeDragDetector(mSide, mTouchRegionWidth, mTouchSlop);
+    }
 
     public boolean isTouchModeEnabled() {
         return mIsTouchModeEnabled;
@@ -127,13 +179,201 @@ public class SlideLayer extends FrameLayout {
         return mLayerNumber;
     }
 
+    @Override
+    protected void onSizeChanged(int w, int h, int oldw, int oldh) {
+        super.onSizeChanged(w, h, oldw, oldh);
+
+        if (mDelegate != null && w != oldw){
+            mDelegate.onSizeChanged(this, w);
+        }
+    }
+
+    /**
+     * @param enabled - true to pad content of the layer by system windows insets,
+     *                the same way as fitsSystemWindows does
+     */
+    void setInsetsPaddingEnabled(boolean enabled) {
+        mIsInsetsPaddingEnabled = enabled;
+    }
+
+    @Override
+    protected boolean fitSystemWindows(Rect insets) {
+        if (mIsInsetsPaddingEnabled){
+            // insets are dispatched once per configuration change, layout is requested only when they differ
+            if (getPaddingTop() != insets.top || getPaddingBottom() != insets.bottom){
+                setPadding(0, insets.top, 0, insets.bottom);
+            }
+        }
+
+        // up to KITKAT children get insets only through this call, among them the action bar
+        // moved into the base card and content of cards; children could change insets, they get a copy
+        mChildInsets.set(insets.left, insets.top, insets.right, insets.bottom);
+        super.fitSystemWindows(mChildInsets);
+
+        // do not consume insets, other cards of the deck should get them too
+        return false;
+    }
+
+    void setLayoutSuppressed(boolean suppressed) {
+        if (mIsLayoutSuppressed == suppressed) return;
+
+        mIsLayoutSuppressed = suppressed;
+        if (!suppressed && mIsLayoutDeferred){
+            mIsLayoutDeferred = false;
+            if (DEBUG) Log.v(TAG, String.format("requestLayout deferred layerNumber=%d", mLayerNumber));
+            super.requestLayout();
+        }
+    }
+
+    boolean isLayoutSuppressed() {
+        return mIsLayoutSuppressed;
+    }
+
+    @Override
+    public void requestLayout() {
+        if (mIsLayoutSuppressed){
+            mIsLayoutDeferred = true;
+            return;
+        }
+        super.requestLayout();
+    }
+
+    @Override
+    protected void onLayout(boolean changed, int left, int top, int right, int bottom) {
+        super.onLayout(changed, left, top, right, bottom);
+        mLayoutCount++;
+    }
+
+    @Override
+    public void invalidate() {
+        mInvalidateCount++;
+        super.invalidate();
+    }
+
+    @Override
+    public ViewParent invalidateChildInParent(int[] location, Rect dirty) {
+        // content of the layer is redrawn
+        mInvalidateCount++;
+        return super.invalidateChildInParent(location, dirty);
+    }
+
+    /**
+     * @return number of invalidations of the layer and its content since it was created
+     */
+    public int getInvalidateCount() {
+        return mInvalidateCount;
+    }
+
+    /**
+     * @return number of layout passes of the layer since it was created
+     */
+    public int getLayoutCount() {
+        return mLayoutCount;
+    }
+
+    /**
+     * draw only part of the layer between left and right, in coordinates of the layer
+     */
+    public void setVisibleSpan(int left, int right) {
+        if (mIsClipped && mClipLeft == left && mClipRight == right) return;
+
+        mIsClipped = true;
+        mClipLeft = left;
+        mClipRight = right;
+        invalidate();
+    }
+
+    /**
+     * @return true when only part of the layer is drawn, see {@link #setVisibleSpan(int, int)}
+     */
+    public boolean isClipped() {
+        return mIsClipped;
+    }
+
+    public void clearVisibleSpan() {
+        if (!mIsClipped) return;
+
+        mIsClipped = false;
+        invalidate();
+    }
+
+    @Override
+    public void draw(Canvas canvas) {
+        if (mIsClipped){
+            int saveCount = canvas.save();
+            canvas.clipRect(mClipLeft, 0, mClipRight, getHeight());
+            super.draw(canvas);
+            canvas.restoreToCount(saveCount);
+        } else {
+            super.draw(canvas);
+        }
+    }
+
+    /**
+     * @param passThrough - true for the base layer over activity content, which is left in its window:
+     *                    the layer takes gestures started at its edge and all gestures while it is opened,
+     *                    other touches go to views below it
+     */
+    void setPassThrough(boolean passThrough) {
+        mIsPassThrough = passThrough;
+    }
+
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent ev) {
+        if (!mIsPassThrough) return super.dispatchTouchEvent(ev);
+
+        int action = ev.getActionMasked();
+        if (action == MotionEvent.ACTION_DOWN){
+            mDragDetector.onDown(ev.getX(), ev.getY(), getWidth());
+            boolean isOpened = mDelegate != null && mDelegate.shouldInterceptEvents(this);
+            // touches away from the edge of the closed card belong to activity content below
+            if (!isOpened && mDragDetector.isRejected()) return false;
+
+            mIsPassThroughDragging = isOpened;
+        } else if (!mIsPassThroughDragging){
+            // gesture started at the edge, views below do not get it, even when it is not a drag
+            if (action == MotionEvent.ACTION_MOVE && mDragDetector.onMove(ev.getX(), ev.getY())){
+                mIsPassThroughDragging = true;
+            } else {
+                return true;
+            }
+        }
+        return super.dispatchTouchEvent(ev);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent ev) {
+        Tracer tracer = mTracer;
+        if (tracer == null) return interceptTouchEvent(ev);
+
+        tracer.beginSection(SECTION_INTERCEPT);
+        boolean intercept = interceptTouchEvent(ev);
+        tracer.endSection();
+        return intercept;
+    }
+
+    private boolean interceptTouchEvent(MotionEvent ev) {
         int action = ev.getActionMasked();
         switch (action){
             case MotionEvent.ACTION_DOWN:
-                isScrollHorizontal = false;
                 mLastMotionX = mInitialMotionX = ev.getRawX();
+                mDragDetector.onDown(ev.getX(), ev.getY(), getWidth());
+
+                // delegate is set not for all layers
+                mWillDelegateIntercept = mDelegate != null && mDelegate.shouldInterceptEvents(this);
+
+                mVelocityEstimator.clear();
+                mVelocityEstimator.addSample(ev.getEventTime(), ev.getRawX());
+                break;
+            case MotionEvent.ACTION_MOVE:
+                if (mDragDetector.isRejected() || isNestedScrollingHorizontally()){
+                    // gesture is not ours, or child offers its unconsumed scroll by nested scrolling
+                    return false;
+                }
+
+                mDragDetector.onMove(ev.getX(), ev.getY());
+                addHistoricalSamples(ev);
+                mVelocityEstimator.addSample(ev.getEventTime(), ev.getRawX());
                 break;
             case MotionEvent.ACTION_UP:
             case MotionEvent.ACTION_CANCEL:
@@ -141,26 +381,27 @@ public class SlideLayer extends FrameLayout {
                 break;
         }
 
-        // called from here in order to find out event type, and decide should it be intercepted
-        gd.onTouchEvent(ev);
-
-        // delegate is set not for all layers
-        boolean willDelegateIntercept = mDelegate != null && mDelegate.shouldInterceptEvents(this);
-        boolean intercept = isScrollHorizontal || willDelegateIntercept;
+        boolean intercept = mDragDetector.isDragging() || mWillDelegateIntercept;
         if (intercept){
             onCancel();
         }
-        if (DEBUG) Log.d(TAG, String.format("onInterceptTouchEvent this=%s %s intercept=%b",
-                this, actionToString(ev.getAction()), intercept));
         return intercept;
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
+        Tracer tracer = mTracer;
+        if (tracer == null) return handleTouchEvent(event);
+
+        tracer.beginSection(SECTION_TOUCH);
+        boolean handled = handleTouchEvent(event);
+        tracer.endSection();
+        return handled;
+    }
+
+    private boolean handleTouchEvent(MotionEvent event) {
         final int action = event.getAction();
 
-        if (DEBUG) Log.v(TAG, String.format("onTouchEvent this=%s %s rawX %f X %f",
-                this, actionToString(action), event.getRawX(), event.getX()));
         float x;
         float distanceX;
         switch (action){
@@ -168,25 +409,127 @@ public class SlideLayer extends FrameLayout {
                 x = event.getRawX();
                 distanceX = x - mLastMotionX;
                 mLastMotionX = x;
+                addHistoricalSamples(event);
+                mVelocityEstimator.addSample(event.getEventTime(), x);
 
-                mDelegate.onActionMove(this, distanceX);
+                mDelegate.onActionMove(this, distanceX, event.getEventTime());
                 break;
             case MotionEvent.ACTION_UP:
                 x = event.getRawX();
                 distanceX = x - mInitialMotionX;
+                mVelocityEstimator.addSample(event.getEventTime(), x);
+                float velocityX = mVelocityEstimator.getVelocity() * MILLIS_PER_SECOND;
 
-                mDelegate.onActionUp(this, distanceX);
+                mDelegate.onActionUp(this, distanceX, velocityX);
                 break;
+            case MotionEvent.ACTION_CANCEL:
+                // settle the deck from the last known position, do not leave cards in the middle
+                distanceX = mLastMotionX - mInitialMotionX;
+
+                mDelegate.onActionUp(this, distanceX, 0);
+                break;
+        }
+        return true;
+    }
+
+    /**
+     * nested scrolling is dispatched only since LOLLIPOP, on older devices it is always false
+     */
+    private boolean isNestedScrollingHorizontally(){
+        return mIsNestedScrollingHorizontally;
+    }
+
+    @Override
+    public boolean onStartNestedScroll(View child, View target, int nestedScrollAxes) {
+        return mDelegate != null && mIsTouchModeEnabled && (nestedScrollAxes & View.SCROLL_AXIS_HORIZONTAL) != 0;
+    }
+
+    @Override
+    public void onNestedScrollAccepted(View child, View target, int axes) {
+        super.onNestedScrollAccepted(child, target, axes);
+        mIsNestedScrollingHorizontally = (axes & View.SCROLL_AXIS_HORIZONTAL) != 0;
+        mIsNestedDragging = false;
+        mNestedDistanceX = 0;
+    }
+
+    @Override
+    public void onNestedPreScroll(View target, int dx, int dy, int[] consumed) {
+        if (mIsNestedDragging && dx != 0){
+            // deck took the gesture, child gets only the scroll, which the deck could not follow
+            int distanceX = mDelegate.getAvailableDrag(this, -dx);
+            consumed[0] = -distanceX;
+            onNestedDrag(distanceX);
+        }
+    }
+
+    @Override
+    public void onNestedScroll(View target, int dxConsumed, int dyConsumed, int dxUnconsumed, int dyUnconsumed) {
+        if (dxUnconsumed == 0) return;
+
+        // child reached its edge, the deck takes the gesture only when it could actually move
+        int distanceX = mDelegate.getAvailableDrag(this, -dxUnconsumed);
+        if (distanceX != 0){
+            mIsNestedDragging = true;
+            onNestedDrag(distanceX);
         }
+    }
+
+    /**
+     * @param distanceX - movement of the finger, which the deck follows
+     */
+    private void onNestedDrag(int distanceX){
+        if (distanceX == 0) return;
+
+        mNestedDistanceX += distanceX;
+        mDelegate.onActionMove(this, distanceX, SystemClock.uptimeMillis());
+    }
+
+    @Override
+    public boolean onNestedPreFling(View target, float velocityX, float velocityY) {
+        if (!mIsNestedDragging) return false;
+
+        mIsNestedDragging = false;
+        mDelegate.onActionUp(this, mNestedDistanceX, -velocityX);
         return true;
     }
 
+    @Override
+    public void onStopNestedScroll(View target) {
+        super.onStopNestedScroll(target);
+        mIsNestedScrollingHorizontally = false;
+        if (mIsNestedDragging){
+            // released without fling
+            mIsNestedDragging = false;
+            mDelegate.onActionUp(this, mNestedDistanceX, 0);
+        }
+    }
+
+    /**
+     * move events are batched, the samples between the previous and this event
+     * make the release velocity more precise on high rate touch screens
+     */
+    private void addHistoricalSamples(MotionEvent event){
+        // raw and local coordinates differ by the same value for all samples of one event
+        float rawOffsetX = event.getRawX() - event.getX();
+
+        int historySize = event.getHistorySize();
+        for (int i = 0; i < historySize; i++){
+            mVelocityEstimator.addSample(event.getHistoricalEventTime(i), event.getHistoricalX(i) + rawOffsetX);
+        }
+    }
+
     private void onCancel(){
-        isScrollHorizontal = false;
+        mDragDetector.reset();
+        mWillDelegateIntercept = false;
     }
 
     public void setupLayer(int side){
         mSide = side;
+        mDragDetector.setSide(side);
+    }
+
+    void setTracer(Tracer tracer){
+        mTracer = tracer;
     }
 
     public void addDelegate(Delegate delegate){
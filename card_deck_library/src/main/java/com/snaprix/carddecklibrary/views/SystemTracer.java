@@ -0,0 +1,42 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.os.Trace;
+
+import com.snaprix.carddecklibrary.model.Tracer;
+
+/**
+ * writes sections to systrace with {@link Trace} since JELLY_BEAN_MR2,
+ * on older devices sections are dropped
+ */
+class SystemTracer implements Tracer {
+    static final SystemTracer INSTANCE = new SystemTracer();
+
+    private SystemTracer() {
+    }
+
+    @Override
+    public void beginSection(String name) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2){
+            beginTraceSection(name);
+        }
+    }
+
+    @Override
+    public void endSection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2){
+            endTraceSection();
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void beginTraceSection(String name){
+        Trace.beginSection(name);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN_MR2)
+    private static void endTraceSection(){
+        Trace.endSection();
+    }
+}
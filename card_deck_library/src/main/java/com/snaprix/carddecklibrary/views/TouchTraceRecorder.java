@@ -0,0 +1,47 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.view.MotionEvent;
+
+import com.snaprix.carddecklibrary.model.TouchTrace;
+
+/**
+ * records touch events of the first pointer in screen coordinates,
+ * should be fed from {@link android.app.Activity#dispatchTouchEvent(MotionEvent)},
+ * so it sees the same events as the deck
+ */
+public class TouchTraceRecorder {
+    private final TouchTrace mTrace = new TouchTrace();
+
+    public void record(MotionEvent event) {
+        int action = event.getActionMasked();
+        switch (action){
+            case MotionEvent.ACTION_DOWN:
+            case MotionEvent.ACTION_MOVE:
+            case MotionEvent.ACTION_UP:
+            case MotionEvent.ACTION_CANCEL:
+                break;
+            default:
+                // only single pointer gestures are replayed
+                return;
+        }
+
+        // raw and local coordinates differ by the same value for all samples of one event
+        float rawOffsetX = event.getRawX() - event.getX();
+        float rawOffsetY = event.getRawY() - event.getY();
+
+        int historySize = event.getHistorySize();
+        for (int i = 0; i < historySize; i++){
+            mTrace.addHistoricalSample(event.getHistoricalEventTime(i),
+                    event.getHistoricalX(i) + rawOffsetX, event.getHistoricalY(i) + rawOffsetY);
+        }
+        mTrace.addEvent(action, event.getEventTime(), event.getRawX(), event.getRawY());
+    }
+
+    public TouchTrace getTrace() {
+        return mTrace;
+    }
+
+    public void reset() {
+        mTrace.clear();
+    }
+}
@@ -0,0 +1,215 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.os.Debug;
+import android.util.DisplayMetrics;
+import android.view.MotionEvent;
+import android.view.View;
+
+import com.snaprix.carddecklibrary.model.ManualFrameClock;
+import com.snaprix.carddecklibrary.model.TouchTrace;
+
+/**
+ * replays recorded touch trace through real views of the deck, frames are driven
+ * by {@link ManualFrameClock}, so the replay is deterministic and does not wait for the display,
+ * runs under Robolectric as well as on a device
+ *
+ * events and frames run one after another on the calling thread, the window could not traverse
+ * its views between them, so after every frame the replayer measures and lays out the target,
+ * when layout was requested, as the traversal of the frame would do
+ *
+ * the controller should be built with the same clock, see {@link SlideController.Builder#setFrameClock}
+ */
+public class TouchTraceReplayer {
+    // frames to wait for the deck to settle after the last event, 10 seconds at 60 Hz
+    private static final int MAX_SETTLE_FRAMES = 600;
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final SlideController mController;
+    private final View mTarget;
+    private final ManualFrameClock mFrameClock;
+
+    private boolean mIsAllocationCountingEnabled = true;
+
+    // counters at the dispatch of the event, which work is counted now
+    private int mEventInvalidateCount;
+    private int mEventLayoutCount;
+    private long mEventAllocationCount;
+
+    /**
+     * @param target - receives events in screen coordinates, usually decor view of the activity
+     */
+    public TouchTraceReplayer(SlideController controller, View target, ManualFrameClock frameClock) {
+        mController = controller;
+        mTarget = target;
+        mFrameClock = frameClock;
+    }
+
+    /**
+     * @param enabled - false to skip allocation counting, it is not supported by every runtime
+     */
+    public void setAllocationCountingEnabled(boolean enabled) {
+        mIsAllocationCountingEnabled = enabled;
+    }
+
+    /**
+     * work of every event is counted from its dispatch to the dispatch of the next event,
+     * frames, which settle the deck after the trace, are counted to the last event
+     */
+    @SuppressWarnings("deprecation")
+    public TouchTraceReport replay(TouchTrace trace) {
+        mController.install();
+        // the deck is laid out before the first event, as it is on the screen
+        performTraversal();
+
+        int eventCount = trace.getEventCount();
+        int[] invalidateCounts = new int[eventCount];
+        int[] layoutCounts = new int[eventCount];
+        long[] allocationCounts = new long[eventCount];
+        long startFrameCount = mFrameClock.getFrameCount();
+
+        // trace is moved to the time of the clock
+        long timeShift = (eventCount > 0) ? mFrameClock.nanoTime() / NANOS_PER_MILLI - trace.getTime(0) : 0;
+
+        if (mIsAllocationCountingEnabled){
+            Debug.resetThreadAllocCount();
+            Debug.startAllocCounting();
+        }
+        startEvent();
+
+        long dispatchTimeNanos = 0;
+        long downTime = 0;
+        for (int i = 0; i < eventCount; i++){
+            long time = trace.getTime(i) + timeShift;
+            int action = trace.getAction(i);
+            if (action == MotionEvent.ACTION_DOWN){
+                downTime = time;
+            }
+
+            // frames, which passed before the event, finish work of the previous one
+            runFramesUntil(time * NANOS_PER_MILLI);
+            if (i > 0){
+                endEvent(i - 1, invalidateCounts, layoutCounts, allocationCounts);
+                startEvent();
+            }
+
+            MotionEvent event = obtainEvent(trace, i, downTime, timeShift);
+
+            long start = System.nanoTime();
+            mTarget.dispatchTouchEvent(event);
+            dispatchTimeNanos += System.nanoTime() - start;
+
+            event.recycle();
+        }
+
+        boolean isSettled = runUntilIdle() && mController.isSettled();
+        if (eventCount > 0){
+            endEvent(eventCount - 1, invalidateCounts, layoutCounts, allocationCounts);
+        }
+
+        if (mIsAllocationCountingEnabled){
+            Debug.stopAllocCounting();
+        } else {
+            for (int i = 0; i < eventCount; i++){
+                allocationCounts[i] = -1;
+            }
+        }
+
+        int cardCount = mController.getCardCount();
+        int[] offsets = new int[cardCount];
+        int[] states = new int[cardCount];
+        for (int i = 0; i < cardCount; i++){
+            SlideLayer layer = mController.getLayer(i + 1);
+            offsets[i] = mController.getOffset(layer);
+            states[i] = mController.getCardState(layer);
+        }
+
+        return new TouchTraceReport(offsets, states, isSettled,
+                (int) (mFrameClock.getFrameCount() - startFrameCount),
+                invalidateCounts, layoutCounts, allocationCounts, dispatchTimeNanos);
+    }
+
+    /**
+     * runs every frame up to the time, each of them is followed by traversal
+     */
+    private void runFramesUntil(long nanoTime){
+        while (mFrameClock.getNextFrameTime() <= nanoTime){
+            mFrameClock.runFrame();
+            performTraversal();
+        }
+        mFrameClock.advanceTo(nanoTime);
+    }
+
+    /**
+     * @return false when frames are still requested after {@link #MAX_SETTLE_FRAMES}
+     */
+    private boolean runUntilIdle(){
+        for (int i = 0; i < MAX_SETTLE_FRAMES && mFrameClock.hasPendingFrame(); i++){
+            mFrameClock.runFrame();
+            performTraversal();
+        }
+        return !mFrameClock.hasPendingFrame();
+    }
+
+    /**
+     * measures and lays out the target, when some view below it requested layout,
+     * the target keeps its size, or fills the screen when it has not been laid out by the window yet
+     */
+    private void performTraversal(){
+        View root = mTarget;
+        if (!root.isLayoutRequested()) return;
+
+        int width = root.getWidth();
+        int height = root.getHeight();
+        if (width == 0 || height == 0){
+            DisplayMetrics metrics = root.getResources().getDisplayMetrics();
+            width = metrics.widthPixels;
+            height = metrics.heightPixels;
+        }
+
+        root.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        root.layout(root.getLeft(), root.getTop(), root.getLeft() + width, root.getTop() + height);
+    }
+
+    @SuppressWarnings("deprecation")
+    private void startEvent(){
+        mEventInvalidateCount = mController.getInvalidateCount();
+        mEventLayoutCount = mController.getLayoutCount();
+        mEventAllocationCount = mIsAllocationCountingEnabled ? Debug.getThreadAllocCount() : 0;
+    }
+
+    /**
+     * stores work done since {@link #startEvent()} as work of the event
+     */
+    @SuppressWarnings("deprecation")
+    private void endEvent(int event, int[] invalidateCounts, int[] layoutCounts, long[] allocationCounts){
+        invalidateCounts[event] = mController.getInvalidateCount() - mEventInvalidateCount;
+        layoutCounts[event] = mController.getLayoutCount() - mEventLayoutCount;
+        if (mIsAllocationCountingEnabled){
+            allocationCounts[event] = Debug.getThreadAllocCount() - mEventAllocationCount;
+        }
+    }
+
+    /**
+     * historical samples go first, the event itself is the last batch
+     */
+    private static MotionEvent obtainEvent(TouchTrace trace, int index, long downTime, long timeShift){
+        int action = trace.getAction(index);
+        int historySize = trace.getHistorySize(index);
+
+        MotionEvent event;
+        if (historySize == 0){
+            event = MotionEvent.obtain(downTime, trace.getTime(index) + timeShift, action,
+                    trace.getX(index), trace.getY(index), 0);
+        } else {
+            event = MotionEvent.obtain(downTime, trace.getHistoricalTime(index, 0) + timeShift, action,
+                    trace.getHistoricalX(index, 0), trace.getHistoricalY(index, 0), 0);
+            for (int h = 1; h < historySize; h++){
+                event.addBatch(trace.getHistoricalTime(index, h) + timeShift,
+                        trace.getHistoricalX(index, h), trace.getHistoricalY(index, h), 1f, 1f, 0);
+            }
+            event.addBatch(trace.getTime(index) + timeShift, trace.getX(index), trace.getY(index), 1f, 1f, 0);
+        }
+        return event;
+    }
+}
@@ -0,0 +1,130 @@
+package com.snaprix.carddecklibrary.views;
+
+import java.util.Arrays;
+
+/**
+ * result of {@link TouchTraceReplayer#replay(com.snaprix.carddecklibrary.model.TouchTrace)}
+ *
+ * work of every event is counted from its dispatch to the dispatch of the next event,
+ * so frames, which apply the movement of the event, are counted to it,
+ * the last event gets frames, which settle the deck
+ */
+public class TouchTraceReport {
+    /**
+     * offsets of the cards from the base one, when the deck settled after the trace
+     */
+    public final int[] offsets;
+    /**
+     * {@link com.snaprix.carddecklibrary.model.DeckState} values of the cards
+     */
+    public final int[] states;
+    public final boolean isSettled;
+
+    public final int eventCount;
+    public final int frameCount;
+    /**
+     * invalidations of the cards and their content for every event
+     */
+    public final int[] invalidateCounts;
+    /**
+     * layout passes of the cards for every event
+     */
+    public final int[] layoutCounts;
+    /**
+     * allocations for every event, -1 when allocations could not be counted
+     */
+    public final long[] allocationCounts;
+    // time spent in dispatchTouchEvent of the target
+    public final long dispatchTimeNanos;
+
+    TouchTraceReport(int[] offsets, int[] states, boolean isSettled, int frameCount,
+                     int[] invalidateCounts, int[] layoutCounts, long[] allocationCounts, long dispatchTimeNanos) {
+        this.offsets = offsets;
+        this.states = states;
+        this.isSettled = isSettled;
+        this.eventCount = invalidateCounts.length;
+        this.frameCount = frameCount;
+        this.invalidateCounts = invalidateCounts;
+        this.layoutCounts = layoutCounts;
+        this.allocationCounts = allocationCounts;
+        this.dispatchTimeNanos = dispatchTimeNanos;
+    }
+
+    public int getInvalidateCount() {
+        int count = 0;
+        for (int i = 0; i < eventCount; i++){
+            count += invalidateCounts[i];
+        }
+        return count;
+    }
+
+    public int getLayoutCount() {
+        int count = 0;
+        for (int i = 0; i < eventCount; i++){
+            count += layoutCounts[i];
+        }
+        return count;
+    }
+
+    /**
+     * @return -1 when allocations could not be counted
+     */
+    public long getAllocationCount() {
+        if (eventCount == 0 || allocationCounts[0] < 0) return -1;
+
+        long count = 0;
+        for (int i = 0; i < eventCount; i++){
+            count += allocationCounts[i];
+        }
+        return count;
+    }
+
+    public int getMaxInvalidatesPerEvent() {
+        int max = 0;
+        for (int i = 0; i < eventCount; i++){
+            max = Math.max(max, invalidateCounts[i]);
+        }
+        return max;
+    }
+
+    public int getMaxLayoutsPerEvent() {
+        int max = 0;
+        for (int i = 0; i < eventCount; i++){
+            max = Math.max(max, layoutCounts[i]);
+        }
+        return max;
+    }
+
+    /**
+     * @return -1 when allocations could not be counted
+     */
+    public long getMaxAllocationsPerEvent() {
+        long max = (eventCount == 0) ? 0 : allocationCounts[0];
+        for (int i = 1; i < eventCount; i++){
+            max = Math.max(max, allocationCounts[i]);
+        }
+        return max;
+    }
+
+    public float getAllocationsPerEvent() {
+        long allocationCount = getAllocationCount();
+        if (allocationCount < 0) return -1;
+        return (float) allocationCount / eventCount;
+    }
+
+    public float getDispatchNanosPerEvent() {
+        if (eventCount == 0) return 0;
+        return (float) dispatchTimeNanos / eventCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("offsets=%s states=%s settled=%b events=%d frames=%d " +
+                        "invalidates=%d (max %d/event) layouts=%d (max %d/event) " +
+                        "allocations=%d (%.2f/event, max %d/event) dispatch=%dns (%.0fns/event)",
+                Arrays.toString(offsets), Arrays.toString(states), isSettled, eventCount, frameCount,
+                getInvalidateCount(), getMaxInvalidatesPerEvent(), getLayoutCount(), getMaxLayoutsPerEvent(),
+                getAllocationCount(), getAllocationsPerEvent(), getMaxAllocationsPerEvent(),
+                dispatchTimeNanos, getDispatchNanosPerEvent());
+    }
+}
@@ -0,0 +1,94 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.annotation.TargetApi;
+import android.os.Build;
+import android.support.v4.view.ViewCompat;
+import android.view.Choreographer;
+import android.view.View;
+
+import com.snaprix.carddecklibrary.model.FrameClock;
+
+/**
+ * frames come from display vsync with {@link Choreographer} since JELLY_BEAN,
+ * on older devices they come from the animation queue of the view
+ *
+ * supports one posted callback at a time, that is enough for one deck
+ */
+class VsyncFrameClock implements FrameClock {
+    private final View mView;
+
+    // created only since JELLY_BEAN
+    private Choreographer.FrameCallback mVsyncCallback;
+
+    private FrameCallback mCallback;
+
+    VsyncFrameClock(View view) {
+        mView = view;
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+            mVsyncCallback = createVsyncCallback();
+        }
+    }
+
+    @Override
+    public long nanoTime() {
+        return System.nanoTime();
+    }
+
+    @Override
+    public void postFrameCallback(FrameCallback callback) {
+        mCallback = callback;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+            postVsyncCallback();
+        } else {
+            ViewCompat.postOnAnimation(mView, mAnimationRunnable);
+        }
+    }
+
+    @Override
+    public void removeFrameCallback(FrameCallback callback) {
+        if (mCallback != callback) return;
+
+        mCallback = null;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN){
+            removeVsyncCallback();
+        } else {
+            mView.removeCallbacks(mAnimationRunnable);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void postVsyncCallback(){
+        Choreographer.getInstance().postFrameCallback(mVsyncCallback);
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private void removeVsyncCallback(){
+        Choreographer.getInstance().removeFrameCallback(mVsyncCallback);
+    }
+
+    private void dispatchFrame(long frameTimeNanos){
+        FrameCallback callback = mCallback;
+        mCallback = null;
+        if (callback != null){
+            callback.doFrame(frameTimeNanos);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.JELLY_BEAN)
+    private Choreographer.FrameCallback createVsyncCallback(){
+        return new Choreographer.FrameCallback() {
+            @Override
+            public void doFrame(long frameTimeNanos) {
+                dispatchFrame(frameTimeNanos);
+            }
+        };
+    }
+
+    private Runnable mAnimationRunnable = new Runnable() {
+        @Override
+        public void run() {
+            dispatchFrame(System.nanoTime());
+        }
+    };
+}
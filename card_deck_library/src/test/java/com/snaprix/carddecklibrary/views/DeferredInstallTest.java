@@ -0,0 +1,106 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.content.Intent;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import com.snaprix.carddecklibrary.BuildConfig;
+import com.snaprix.carddecklibrary.model.DeckState;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * deck moved by translation is installed on the first touch at the edge,
+ * activity content stays in its window as the base card
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class DeferredInstallTest {
+    private static final int MAX_SETTLE_FRAMES = 600;
+    private static final long EVENT_INTERVAL = 16;
+    private static final int MOVE_COUNT = 20;
+
+    @Test
+    public void firstEdgeDragInstallsDeckAndMovesIt() {
+        for (int side : new int[]{Side.LEFT, Side.RIGHT}){
+            TraceReplayActivity activity = createActivity(side);
+            SlideController controller = activity.getSlideController();
+            ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+            View content = (View) activity.findViewById(android.R.id.content).getParent();
+            assertFalse("installed before the first touch, side " + side, controller.isInstalled());
+
+            int width = decorView.getWidth();
+            int distance = TouchTraceReplayTest.getMenuWidth(activity);
+            float x = (side == Side.LEFT) ? 2 : width - 2;
+            float y = decorView.getHeight() / 2;
+            // cards opening towards the side move from it
+            float direction = (side == Side.LEFT) ? 1 : -1;
+
+            long downTime = SystemClock.uptimeMillis();
+            dispatch(decorView, downTime, downTime, MotionEvent.ACTION_DOWN, x, y);
+            assertTrue("not installed on the edge touch, side " + side, controller.isInstalled());
+            assertSame("content is moved, side " + side, decorView, content.getParent());
+
+            for (int i = 1; i <= MOVE_COUNT; i++){
+                dispatch(decorView, downTime, downTime + i * EVENT_INTERVAL, MotionEvent.ACTION_MOVE,
+                        x + direction * distance * i / MOVE_COUNT, y);
+                activity.getFrameClock().runFrame();
+            }
+            dispatch(decorView, downTime, downTime + (MOVE_COUNT + 1) * EVENT_INTERVAL, MotionEvent.ACTION_UP,
+                    x + direction * distance, y);
+            assertTrue(activity.getFrameClock().runUntilIdle(MAX_SETTLE_FRAMES));
+
+            SlideLayer baseLayer = controller.getBaseLayer();
+            assertEquals("side " + side, DeckState.OPENED, controller.getCardState(baseLayer));
+            assertEquals("content follows the base card, side " + side,
+                    baseLayer.getTranslationX(), content.getTranslationX(), 0);
+            assertEquals("side " + side, direction * distance, content.getTranslationX(), 0);
+
+            // lower cards are under the content, the base layer is over it
+            View menuContainer = (View) controller.getLayer(2).getParent();
+            View baseContainer = (View) baseLayer.getParent();
+            assertTrue(decorView.indexOfChild(menuContainer) < decorView.indexOfChild(content));
+            assertTrue(decorView.indexOfChild(baseContainer) > decorView.indexOfChild(content));
+        }
+    }
+
+    @Test
+    public void touchAwayFromEdgeDoesNotInstallDeck() {
+        TraceReplayActivity activity = createActivity(Side.LEFT);
+        ViewGroup decorView = (ViewGroup) activity.getWindow().getDecorView();
+
+        long downTime = SystemClock.uptimeMillis();
+        dispatch(decorView, downTime, downTime, MotionEvent.ACTION_DOWN, decorView.getWidth() / 2, 100);
+        dispatch(decorView, downTime, downTime + EVENT_INTERVAL, MotionEvent.ACTION_UP, decorView.getWidth() / 2, 100);
+        assertFalse(activity.getSlideController().isInstalled());
+    }
+
+    private static TraceReplayActivity createActivity(int side){
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.putExtra(TraceReplayActivity.EXTRA_SIDE, side);
+        intent.putExtra(TraceReplayActivity.EXTRA_INSTALL_ON_EDGE_TOUCH, true);
+        TraceReplayActivity activity = Robolectric.buildActivity(TraceReplayActivity.class)
+                .withIntent(intent)
+                .setup()
+                .get();
+        TouchTraceReplayTest.layOutScreen(activity);
+        return activity;
+    }
+
+    private static void dispatch(View target, long downTime, long eventTime, int action, float x, float y){
+        MotionEvent event = MotionEvent.obtain(downTime, eventTime, action, x, y, 0);
+        target.dispatchTouchEvent(event);
+        event.recycle();
+    }
+}
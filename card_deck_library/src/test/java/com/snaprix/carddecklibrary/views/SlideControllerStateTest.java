@@ -0,0 +1,61 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.os.Bundle;
+
+import com.snaprix.carddecklibrary.BuildConfig;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * saves the deck and restores it in a new activity, which has not been laid out yet
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class SlideControllerStateTest {
+    // frames to wait for the deck to settle, 10 seconds at 60 Hz
+    private static final int MAX_SETTLE_FRAMES = 600;
+
+    /**
+     * with the sub menu opened the base card is beyond the width of the menu,
+     * the base card is not measured, when the state is restored, its offset should survive
+     */
+    @Test
+    public void restoresNestedCardBeforeBaseCardIsMeasured() {
+        for (int side : new int[]{Side.LEFT, Side.RIGHT}){
+            TraceReplayActivity activity = TouchTraceReplayTest.createActivity(side);
+            SlideController controller = activity.getSlideController();
+
+            controller.switchState(controller.getLayer(1), true);
+            assertTrue(activity.getFrameClock().runUntilIdle(MAX_SETTLE_FRAMES));
+            controller.switchState(controller.getLayer(2), true);
+            assertTrue(activity.getFrameClock().runUntilIdle(MAX_SETTLE_FRAMES));
+
+            int[] offsets = getOffsets(controller);
+            assertTrue("base card is not beyond the menu, side " + side,
+                    offsets[0] > TouchTraceReplayTest.getMenuWidth(activity));
+
+            Bundle outState = new Bundle();
+            controller.saveState(outState);
+
+            TraceReplayActivity restored = TouchTraceReplayTest.createActivity(side, outState);
+            int[] restoredOffsets = getOffsets(restored.getSlideController());
+            for (int i = 0; i < offsets.length; i++){
+                assertEquals("card " + i + ", side " + side, offsets[i], restoredOffsets[i]);
+            }
+        }
+    }
+
+    private static int[] getOffsets(SlideController controller){
+        int[] offsets = new int[controller.getCardCount()];
+        for (int i = 0; i < offsets.length; i++){
+            offsets[i] = controller.getOffset(controller.getLayer(i + 1));
+        }
+        return offsets;
+    }
+}
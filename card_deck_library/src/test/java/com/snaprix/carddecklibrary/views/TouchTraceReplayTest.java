@@ -0,0 +1,136 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.view.View;
+
+import com.snaprix.carddecklibrary.BuildConfig;
+import com.snaprix.carddecklibrary.R;
+import com.snaprix.carddecklibrary.model.DeckState;
+import com.snaprix.carddecklibrary.model.TouchTrace;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * replays traces of src/test/resources/traces through the real deck on the JVM,
+ * traces are in the format of {@link TouchTraceRecorder}, swipes on a 480x800 screen at mdpi
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 21)
+public class TouchTraceReplayTest {
+    private static final int SCREEN_WIDTH = 480;
+    private static final int SCREEN_HEIGHT = 800;
+
+    /**
+     * slow drag from the left edge, released after the finger stopped, the menu opens by distance
+     */
+    @Test
+    public void leftSlowDragOpensMenu() throws IOException {
+        TraceReplayActivity activity = createActivity(Side.LEFT);
+        TouchTraceReport report = replay(activity, "left_open_menu.trace");
+
+        assertTrue("deck did not settle " + report, report.isSettled);
+        assertEquals(DeckState.OPENED, report.states[0]);
+        assertEquals(getMenuWidth(activity), report.offsets[0]);
+        assertEquals(DeckState.CLOSED, report.states[1]);
+        assertNoLayout(report);
+    }
+
+    /**
+     * flick from the left edge opens the menu, though the finger went a small part of its width
+     */
+    @Test
+    public void leftFlickOpensMenu() throws IOException {
+        TraceReplayActivity activity = createActivity(Side.LEFT);
+        TouchTraceReport report = replay(activity, "left_flick_open.trace");
+
+        assertTrue("deck did not settle " + report, report.isSettled);
+        assertEquals(DeckState.OPENED, report.states[0]);
+        assertEquals(getMenuWidth(activity), report.offsets[0]);
+        assertNoLayout(report);
+    }
+
+    /**
+     * the right deck is opened from the right edge, the finger goes back fast, the deck closes
+     */
+    @Test
+    public void rightFlingBackClosesDeck() throws IOException {
+        TraceReplayActivity activity = createActivity(Side.RIGHT);
+        TouchTraceReport report = replay(activity, "right_fling_back.trace");
+
+        assertTrue("deck did not settle " + report, report.isSettled);
+        for (int i = 0; i < report.offsets.length; i++){
+            assertEquals(DeckState.CLOSED, report.states[i]);
+            assertEquals(0, report.offsets[i]);
+        }
+        assertTrue("deck did not move " + report, report.frameCount > 0);
+        assertNoLayout(report);
+    }
+
+    private static void assertNoLayout(TouchTraceReport report){
+        for (int i = 0; i < report.eventCount; i++){
+            assertEquals("layout at event " + i + " " + report, 0, report.layoutCounts[i]);
+        }
+    }
+
+    static TraceReplayActivity createActivity(int side){
+        return createActivity(side, null);
+    }
+
+    /**
+     * @param savedState - state of the previous instance of the activity, null for a new one
+     */
+    static TraceReplayActivity createActivity(int side, Bundle savedState){
+        Intent intent = new Intent(Intent.ACTION_MAIN);
+        intent.putExtra(TraceReplayActivity.EXTRA_SIDE, side);
+        TraceReplayActivity activity = Robolectric.buildActivity(TraceReplayActivity.class)
+                .withIntent(intent)
+                .setup(savedState)
+                .get();
+        layOutScreen(activity);
+        return activity;
+    }
+
+    /**
+     * the window of the activity is not laid out on the JVM, traces expect the screen they were recorded on
+     */
+    static void layOutScreen(TraceReplayActivity activity){
+        View decorView = activity.getWindow().getDecorView();
+        decorView.measure(View.MeasureSpec.makeMeasureSpec(SCREEN_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(SCREEN_HEIGHT, View.MeasureSpec.EXACTLY));
+        decorView.layout(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT);
+    }
+
+    static int getMenuWidth(TraceReplayActivity activity){
+        return activity.getResources().getDimensionPixelSize(R.dimen.menu_width);
+    }
+
+    private TouchTraceReport replay(TraceReplayActivity activity, String name) throws IOException {
+        InputStream is = getClass().getClassLoader().getResourceAsStream("traces/" + name);
+        assertNotNull("no trace " + name, is);
+
+        TouchTrace trace;
+        try {
+            trace = TouchTrace.readFrom(is);
+        } finally {
+            is.close();
+        }
+
+        TouchTraceReplayer replayer = new TouchTraceReplayer(activity.getSlideController(),
+                activity.getWindow().getDecorView(), activity.getFrameClock());
+        // allocation counting of the runtime is not available on the JVM
+        replayer.setAllocationCountingEnabled(false);
+        return replayer.replay(trace);
+    }
+}
@@ -0,0 +1,68 @@
+package com.snaprix.carddecklibrary.views;
+
+import android.app.Activity;
+import android.content.res.Resources;
+import android.os.Bundle;
+import android.widget.TextView;
+
+import com.snaprix.carddecklibrary.R;
+import com.snaprix.carddecklibrary.model.ManualFrameClock;
+
+/**
+ * deck of three cards with text content, frames of the deck are stepped by the replayer
+ */
+public class TraceReplayActivity extends Activity {
+    public static final String EXTRA_SIDE = "side";
+    /**
+     * deck is moved by translation and installed on the first edge touch, its cards have no content
+     */
+    public static final String EXTRA_INSTALL_ON_EDGE_TOUCH = "installOnEdgeTouch";
+
+    private SlideController mSlideController;
+    private ManualFrameClock mFrameClock;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(createText("content"));
+
+        Resources res = getResources();
+        int collapsedWidth = res.getDimensionPixelSize(R.dimen.menu_width_collapsed);
+        mFrameClock = new ManualFrameClock();
+        boolean isDeferred = getIntent().getBooleanExtra(EXTRA_INSTALL_ON_EDGE_TOUCH, false);
+        mSlideController = new SlideController.Builder(this, getIntent().getIntExtra(EXTRA_SIDE, Side.LEFT))
+                .addCard(R.id.card_2_layer, res.getDimensionPixelSize(R.dimen.menu_width), collapsedWidth)
+                .addCard(R.id.card_3_layer, res.getDimensionPixelSize(R.dimen.sub_menu_width), collapsedWidth)
+                .setFrameClock(mFrameClock)
+                .setMotion(isDeferred ? Motion.TRANSLATION : Motion.SCROLL)
+                .setDeferredInstall(isDeferred)
+                .setInstallOnEdgeTouch(isDeferred)
+                .build();
+        mSlideController.restoreState(savedInstanceState);
+        // layers would install the deck at once
+        if (isDeferred) return;
+
+        mSlideController.getLayer(2).addView(createText("menu"));
+        mSlideController.getLayer(3).addView(createText("sub menu"));
+    }
+
+    @Override
+    protected void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        mSlideController.saveState(outState);
+    }
+
+    private TextView createText(String text){
+        TextView textView = new TextView(this);
+        textView.setText(text);
+        return textView;
+    }
+
+    public SlideController getSlideController() {
+        return mSlideController;
+    }
+
+    public ManualFrameClock getFrameClock() {
+        return mFrameClock;
+    }
+}